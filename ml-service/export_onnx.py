@@ -0,0 +1,30 @@
+"""Export the service's MobileNetV2 for in-process inference (civicchain.ml.client: onnx)
+
+Usage: pip install tf2onnx && python export_onnx.py ../models
+Writes mobilenet_v2.onnx and imagenet_class_index.json, the files civicchain.ml.onnx.* point at.
+"""
+import json
+import os
+import sys
+
+import tensorflow as tf
+import tf2onnx
+from tensorflow.keras.applications import MobileNetV2
+from tensorflow.keras.utils import get_file
+
+out_dir = sys.argv[1] if len(sys.argv) > 1 else "models"
+os.makedirs(out_dir, exist_ok=True)
+
+model = MobileNetV2(weights='imagenet', include_top=True)
+# Dynamic batch dimension so /verify_batch-sized batches run in a single session call
+spec = (tf.TensorSpec((None, 224, 224, 3), tf.float32, name="input"),)
+tf2onnx.convert.from_keras(model, input_signature=spec, opset=13,
+                           output_path=os.path.join(out_dir, "mobilenet_v2.onnx"))
+
+# Same class names decode_predictions uses, so CIVIC_CATEGORIES matching behaves identically
+index_path = get_file("imagenet_class_index.json",
+                      "https://storage.googleapis.com/download.tensorflow.org/data/imagenet_class_index.json")
+with open(index_path) as src, open(os.path.join(out_dir, "imagenet_class_index.json"), "w") as dst:
+    json.dump(json.load(src), dst)
+
+print(f"Exported to {out_dir}")
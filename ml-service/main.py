@@ -1,4 +1,4 @@
-from fastapi import FastAPI, File, UploadFile, HTTPException
+from fastapi import FastAPI, File, Form, UploadFile, HTTPException
 from fastapi.middleware.cors import CORSMiddleware
 import tensorflow as tf
 from tensorflow.keras.applications import MobileNetV2
@@ -8,7 +8,7 @@ import numpy as np
 from PIL import Image
 import io
 from pydantic import BaseModel
-from typing import Dict, Any
+from typing import Dict, Any, List
 import uvicorn
 
 app = FastAPI(title="CivicChain ML Service", version="1.0.0")
@@ -34,7 +34,7 @@ class VerificationResult(BaseModel):
     category_match: bool
     details: Dict[str, Any]
 
-# Category mapping for civic issues
+# Category mapping for civic issues (mirrored in CivicCategoryMatcher.java for in-process inference)
 CIVIC_CATEGORIES = {
     'POTHOLE': ['pothole', 'road', 'asphalt', 'street', 'pavement', 'crack'],
     'GARBAGE': ['garbage', 'trash', 'waste', 'litter', 'bin', 'refuse'],
@@ -46,7 +46,7 @@ CIVIC_CATEGORIES = {
 }
 
 def preprocess_image(img_bytes: bytes) -> np.ndarray:
-    """Preprocess image for MobileNetV2"""
+    """Preprocess one image for MobileNetV2, returning a (224, 224, 3) array"""
     try:
         img = Image.open(io.BytesIO(img_bytes))
         if img.mode != 'RGB':
@@ -55,12 +55,9 @@ def preprocess_image(img_bytes: bytes) -> np.ndarray:
         # Resize to 224x224 as required by MobileNetV2
         img = img.resize((224, 224))
         img_array = image.img_to_array(img)
-        img_array = np.expand_dims(img_array, axis=0)
-        img_array = preprocess_input(img_array)
-        
-        return img_array
+        return preprocess_input(img_array)
     except Exception as e:
-        raise HTTPException(status_code=400, f"Error processing image: {str(e)}")
+        raise HTTPException(status_code=400, detail=f"Error processing image: {str(e)}")
 
 def check_category_match(predictions: list, reported_category: str) -> tuple:
     """Check if AI prediction matches the reported category"""
@@ -91,6 +88,42 @@ def check_category_match(predictions: list, reported_category: str) -> tuple:
     
     return category_found, max_confidence, best_match
 
+def build_result(predictions: np.ndarray, category: str) -> VerificationResult:
+    """Turn the predictions for one image (shape (1, 1000)) into a verification result"""
+    # Get top prediction
+    top_predictions = decode_predictions(predictions, top=3)[0]
+    top_prediction = top_predictions[0]
+    
+    # Check category match
+    category_match, match_confidence, best_match = check_category_match(
+        predictions, category.upper()
+    )
+    
+    # Determine verification result
+    overall_confidence = float(top_prediction[2])
+    if category_match and match_confidence > 0.3:
+        overall_confidence = match_confidence
+    
+    ai_verified = category_match and overall_confidence > 0.5
+    
+    return VerificationResult(
+        ai_verified=ai_verified,
+        confidence=round(overall_confidence, 3),
+        prediction=best_match if category_match else top_prediction[1],
+        category_match=category_match,
+        details={
+            "reported_category": category,
+            "top_predictions": [
+                {
+                    "class": pred[1],
+                    "confidence": round(float(pred[2]), 3)
+                } for pred in top_predictions
+            ],
+            "match_confidence": round(match_confidence, 3) if category_match else 0.0,
+            "threshold_met": overall_confidence > 0.5
+        }
+    )
+
 @app.post("/verify", response_model=VerificationResult)
 async def verify_image(
     image_file: UploadFile = File(...),
@@ -102,54 +135,55 @@ async def verify_image(
         raise HTTPException(status_code=400, detail="File must be an image")
     
     try:
-        # Read image
+        # Read and preprocess image
         image_bytes = await image_file.read()
-        
-        # Preprocess
-        processed_image = preprocess_image(image_bytes)
+        processed_image = np.expand_dims(preprocess_image(image_bytes), axis=0)
         
         # Make prediction
         predictions = model.predict(processed_image)
         
-        # Get top prediction
-        top_predictions = decode_predictions(predictions, top=3)[0]
-        top_prediction = top_predictions[0]
-        
-        # Check category match
-        category_match, match_confidence, best_match = check_category_match(
-            predictions, category.upper()
-        )
-        
-        # Determine verification result
-        overall_confidence = float(top_prediction[2])
-        if category_match and match_confidence > 0.3:
-            overall_confidence = match_confidence
-        
-        ai_verified = category_match and overall_confidence > 0.5
-        
-        result = VerificationResult(
-            ai_verified=ai_verified,
-            confidence=round(overall_confidence, 3),
-            prediction=best_match if category_match else top_prediction[1],
-            category_match=category_match,
-            details={
-                "reported_category": category,
-                "top_predictions": [
-                    {
-                        "class": pred[1],
-                        "confidence": round(float(pred[2]), 3)
-                    } for pred in top_predictions
-                ],
-                "match_confidence": round(match_confidence, 3) if category_match else 0.0,
-                "threshold_met": overall_confidence > 0.5
-            }
-        )
-        
-        return result
+        return build_result(predictions, category)
         
+    except HTTPException:
+        raise
     except Exception as e:
         raise HTTPException(status_code=500, detail=f"Verification failed: {str(e)}")
 
+@app.post("/verify_batch")
+async def verify_batch(
+    image_files: List[UploadFile] = File(...),
+    categories: List[str] = Form(...)
+):
+    """Verify several images with one model.predict call; results are returned in upload order"""
+    
+    if len(image_files) != len(categories):
+        raise HTTPException(status_code=400, detail="Expected one category per image")
+    
+    # A bad image fails only its own slot, not the whole batch
+    arrays = []
+    errors = {}
+    for index, image_file in enumerate(image_files):
+        try:
+            if not (image_file.content_type or '').startswith('image/'):
+                raise HTTPException(status_code=400, detail="File must be an image")
+            arrays.append((index, preprocess_image(await image_file.read())))
+        except HTTPException as e:
+            errors[index] = e.detail
+    
+    results: List[Any] = [None] * len(image_files)
+    try:
+        if arrays:
+            predictions = model.predict(np.stack([array for _, array in arrays]))
+            for row, (index, _) in enumerate(arrays):
+                results[index] = build_result(predictions[row:row + 1], categories[index])
+    except Exception as e:
+        raise HTTPException(status_code=500, detail=f"Verification failed: {str(e)}")
+    
+    for index, detail in errors.items():
+        results[index] = {"error": detail}
+    
+    return {"results": results}
+
 @app.get("/health")
 async def health_check():
     """Health check endpoint"""
@@ -1,9 +1,56 @@
 package com.civicchain.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+// The pools below are Executor beans, which switch off Boot's own applicationTaskExecutor; it is
+// declared here again so Spring MVC async requests (streamed exports) keep a bounded pool
 @Configuration
-@EnableAsync
 public class AsyncConfig {
-}
\ No newline at end of file
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    // Runs ML verification jobs and batches; sized so an upload burst queues instead of flooding the ML service
+    @Bean(name = "mlVerificationExecutor", destroyMethod = "shutdown")
+    public MLVerificationExecutor mlVerificationExecutor(
+            @Value("${civicchain.ml.executor.concurrency:4}") int concurrency,
+            @Value("${civicchain.ml.executor.queue-capacity:100}") int queueCapacity,
+            @Value("${civicchain.ml.executor.rejection-policy:REJECT}") MLVerificationExecutor.RejectionPolicy rejectionPolicy) {
+        return new MLVerificationExecutor(concurrency, queueCapacity, rejectionPolicy);
+    }
+
+    // Renders report image variants off the request path; a full queue drops work the startup backfill picks up again
+    @Bean(name = "imageVariantExecutor")
+    public ThreadPoolTaskExecutor imageVariantExecutor(
+            @Value("${civicchain.media.variants.threads:1}") int threads,
+            @Value("${civicchain.media.variants.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-variant-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    // Transcodes voice notes; same drop-and-backfill behaviour as the image variant pool
+    @Bean(name = "audioTranscodeExecutor")
+    public ThreadPoolTaskExecutor audioTranscodeExecutor(
+            @Value("${civicchain.media.audio.threads:1}") int threads,
+            @Value("${civicchain.media.audio.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("audio-transcode-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,125 @@
+package com.civicchain.config;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed-size pool with a bounded queue for ML verification jobs. Tracks how long jobs wait in the
+// queue, how many are running and how many were turned away, so bursts show up in /api/admin/ml/executor.
+public class MLVerificationExecutor extends ThreadPoolExecutor {
+
+    public enum RejectionPolicy {
+        // Drop the job; the report stays pending for community/admin verification
+        REJECT,
+        // Run the job on the submitting (upload) thread, slowing ingestion down instead of dropping
+        CALLER_RUNS
+    }
+
+    private final RejectionPolicy rejectionPolicy;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong startedTasks = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile long lastWaitNanos;
+
+    public MLVerificationExecutor(int concurrency, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        super(concurrency, concurrency, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("ml-verify-"));
+        this.rejectionPolicy = rejectionPolicy;
+        setRejectedExecutionHandler(rejectionHandler(rejectionPolicy));
+    }
+
+    // Rejected tasks are counted under rejected only; caller-runs tasks count as submitted
+    @Override
+    public void execute(Runnable command) {
+        long enqueuedAt = System.nanoTime();
+        super.execute(() -> {
+            recordWait(System.nanoTime() - enqueuedAt);
+            inFlight.incrementAndGet();
+            try {
+                command.run();
+                completed.incrementAndGet();
+            } catch (RuntimeException | Error e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        submitted.incrementAndGet();
+    }
+
+    // Tasks wrapped in a CompletableFuture never throw here; the future carries the failure instead
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        return future.whenComplete((result, error) -> {
+            if (error != null) {
+                failed.incrementAndGet();
+            }
+        });
+    }
+
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        long started = startedTasks.get();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("concurrency", getMaximumPoolSize());
+        snapshot.put("queueCapacity", getQueueDepth() + getQueue().remainingCapacity());
+        snapshot.put("rejectionPolicy", rejectionPolicy);
+        snapshot.put("queueDepth", getQueueDepth());
+        snapshot.put("inFlight", getInFlight());
+        snapshot.put("submitted", submitted.get());
+        snapshot.put("completed", completed.get());
+        snapshot.put("failed", failed.get());
+        snapshot.put("rejected", rejected.get());
+        snapshot.put("callerRuns", callerRuns.get());
+        snapshot.put("lastWaitMs", toMillis(lastWaitNanos));
+        snapshot.put("maxWaitMs", toMillis(maxWaitNanos.get()));
+        snapshot.put("averageWaitMs", started > 0 ? toMillis(totalWaitNanos.get() / started) : 0.0);
+        return snapshot;
+    }
+
+    private void recordWait(long waitNanos) {
+        startedTasks.incrementAndGet();
+        lastWaitNanos = waitNanos;
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private RejectedExecutionHandler rejectionHandler(RejectionPolicy policy) {
+        RejectedExecutionHandler delegate = policy == RejectionPolicy.CALLER_RUNS
+            ? new CallerRunsPolicy()
+            : new AbortPolicy();
+        return (task, executor) -> {
+            if (policy == RejectionPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                callerRuns.incrementAndGet();
+            } else {
+                rejected.incrementAndGet();
+            }
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -1,16 +1,35 @@
 package com.civicchain.controller;
 
+import com.civicchain.config.MLVerificationExecutor;
+import com.civicchain.dto.ReportListResponse;
+import com.civicchain.dto.ReportPage;
+import com.civicchain.dto.ReportSummary;
+import com.civicchain.model.MLJob;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
+import com.civicchain.service.AudioTranscodeService;
+import com.civicchain.service.DashboardStatsService;
+import com.civicchain.service.ExportService;
+import com.civicchain.service.ImageVariantService;
+import com.civicchain.service.MLCircuitBreaker;
+import com.civicchain.service.MLJobService;
+import com.civicchain.service.MLService;
 import com.civicchain.service.ReportService;
+import com.civicchain.service.UploadStorageService;
 import com.civicchain.service.UserService;
+import com.civicchain.service.XpLedgerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +46,36 @@ public class AdminApiController {
     @Autowired
     private ReportService reportService;
     
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private DashboardStatsService statsService;
+    
+    @Autowired
+    private XpLedgerService xpLedgerService;
+    
+    @Autowired
+    private MLVerificationExecutor mlVerificationExecutor;
+    
+    @Autowired
+    private MLService mlService;
+    
+    @Autowired
+    private MLJobService mlJobService;
+    
+    @Autowired
+    private MLCircuitBreaker mlCircuitBreaker;
+    
+    @Autowired
+    private UploadStorageService uploadStorageService;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private AudioTranscodeService audioTranscodeService;
+    
     // Check if user is admin
     private boolean isAdmin(HttpServletRequest request) {
         HttpSession session = request.getSession(false);
@@ -38,57 +87,164 @@ public class AdminApiController {
     }
     
     @GetMapping("/reports")
-    @Transactional
-    public ResponseEntity<?> getAllReports(HttpServletRequest request) {
+    public ResponseEntity<?> getAllReports(HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         if (!isAdmin(request)) {
             return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
         }
         
-        List<Report> allReports = reportService.getAllReports();
-        
-        // Create serializable report data
-        List<Map<String, Object>> reportsData = new ArrayList<>();
-        for (Report report : allReports) {
-            Map<String, Object> reportData = new HashMap<>();
-            reportData.put("id", report.getId());
-            reportData.put("title", report.getTitle());
-            reportData.put("description", report.getDescription());
-            reportData.put("category", report.getCategory());
-            reportData.put("severity", report.getSeverity());
-            reportData.put("status", report.getStatus());
-            reportData.put("imagePath", report.getImagePath());
-            reportData.put("location", report.getLocation());
-            reportData.put("latitude", report.getLatitude());
-            reportData.put("longitude", report.getLongitude());
-            reportData.put("upvotes", report.getUpvotes());
-            reportData.put("downvotes", report.getDownvotes());
-            reportData.put("aiVerified", report.getAiVerified());
-            reportData.put("aiConfidence", report.getAiConfidence());
-            reportData.put("verified", report.getVerified());
-            reportData.put("createdAt", report.getCreatedAt());
-            
-            // Add reporter information
-            if (report.getReporter() != null) {
-                Map<String, Object> reporter = new HashMap<>();
-                reporter.put("id", report.getReporter().getId());
-                reporter.put("username", report.getReporter().getUsername());
-                reporter.put("email", report.getReporter().getEmail());
-                reportData.put("reporter", reporter);
-            }
-            
-            reportsData.add(reportData);
+        ReportPage<ReportSummary> page;
+        try {
+            page = reportService.getReportSummaryPage(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("reports", reportsData);
+        ReportListResponse response = new ReportListResponse(page)
+            .includeReporterEmail()
+            .with("totalReports", statsService.getTotalReports())
+            .with("pendingReports", statsService.getReportCount(Report.Status.PENDING))
+            .with("verifiedReports", statsService.getReportCount(Report.Status.VERIFIED));
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        Map<String, Object> response = new HashMap<>(statsService.snapshot());
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+    
+    // Queue depth, wait times and in-flight count of the ML verification pool, plus the batching stage
+    @GetMapping("/ml/executor")
+    public ResponseEntity<?> getMlExecutorStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        Map<String, Object> response = new HashMap<>(mlVerificationExecutor.snapshot());
+        response.put("batching", mlService.getBatchStats());
+        response.put("cache", mlService.getCacheStats());
+        response.put("preprocess", mlService.getPreprocessStats());
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+    
+    // Content-addressed upload store: distinct files, report references to them and bytes on disk,
+    // plus the image variant and audio transcoding pipelines
+    @GetMapping("/storage")
+    public ResponseEntity<?> getStorageStats(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        Map<String, Object> response = new HashMap<>(uploadStorageService.getStats());
+        response.put("variants", imageVariantService.getStats());
+        response.put("audio", audioTranscodeService.getStats());
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+    
+    // Cached ML service health and circuit breaker state/transition counts
+    @GetMapping("/ml/health")
+    public ResponseEntity<?> getMlHealth(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        Map<String, Object> response = new HashMap<>(mlCircuitBreaker.snapshot());
         response.put("success", true);
-        response.put("totalReports", allReports.size());
-        response.put("pendingReports", reportService.getPendingReports().size());
-        response.put("verifiedReports", reportService.getVerifiedReports().size());
+        return ResponseEntity.ok(response);
+    }
+    
+    // Job counts per status plus the most recently touched jobs in one status (dead letters by default)
+    @GetMapping("/ml/jobs")
+    public ResponseEntity<?> getMlJobs(@RequestParam(defaultValue = "DEAD") String status,
+                                       @RequestParam(defaultValue = "50") int limit, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
         
+        MLJob.Status jobStatus;
+        try {
+            jobStatus = MLJob.Status.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown job status: " + status));
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("counts", mlJobService.getJobCounts());
+        response.put("jobs", mlJobService.getJobs(jobStatus, Math.max(1, Math.min(limit, ReportService.MAX_PAGE_SIZE))));
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/ml/jobs/{id}/requeue")
+    public ResponseEntity<?> requeueMlJob(@PathVariable Long id, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        if (!mlJobService.requeue(id)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Only dead-lettered jobs can be requeued"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "Job requeued"));
+    }
+    
+    @GetMapping("/reports/export")
+    public ResponseEntity<StreamingResponseBody> exportReports(HttpServletRequest request,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return export(request, format, "reports", exportService::exportReports);
+    }
+    
+    @GetMapping("/verifications/export")
+    public ResponseEntity<StreamingResponseBody> exportVerifications(HttpServletRequest request,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        return export(request, format, "verifications", exportService::exportVerifications);
+    }
+    
+    @FunctionalInterface
+    private interface Exporter {
+        void export(ExportService.Format format, OutputStream out) throws IOException;
+    }
+    
+    // Streams the export straight to the client instead of building the response in memory
+    private ResponseEntity<StreamingResponseBody> export(HttpServletRequest request, String format, String name, Exporter exporter) {
+        if (!isAdmin(request)) {
+            return errorBody(403, "Admin access required");
+        }
+        
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return errorBody(400, "Unsupported export format, use ndjson or csv");
+        }
+        
+        MediaType contentType = exportFormat == ExportService.Format.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : MediaType.parseMediaType("application/x-ndjson");
+        String filename = name + "." + exportFormat.name().toLowerCase();
+        
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(out -> exporter.export(exportFormat, out));
+    }
+    
+    private ResponseEntity<StreamingResponseBody> errorBody(int status, String message) {
+        byte[] body = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> out.write(body));
+    }
+    
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers(HttpServletRequest request) {
         if (!isAdmin(request)) {
@@ -150,6 +306,19 @@ public class AdminApiController {
         }
     }
     
+    // Audit trail of XP awards for one user, newest first
+    @GetMapping("/users/{id}/xp-events")
+    public ResponseEntity<?> getUserXpEvents(@PathVariable Long id, @RequestParam(defaultValue = "50") int limit, HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("events", xpLedgerService.getRecentEvents(id, Math.max(1, Math.min(limit, ReportService.MAX_PAGE_SIZE))));
+        return ResponseEntity.ok(response);
+    }
+    
     @DeleteMapping("/users/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable Long id, HttpServletRequest request) {
         if (!isAdmin(request)) {
@@ -171,16 +340,15 @@ public class AdminApiController {
         }
         
         try {
-            User user = userService.getUserById(id).orElseThrow(() -> new RuntimeException("User not found"));
+            userService.getUserById(id).orElseThrow(() -> new RuntimeException("User not found"));
             
             if (updates.containsKey("role")) {
-                user.setRole(User.Role.valueOf(updates.get("role").toString()));
+                userService.updateRole(id, User.Role.valueOf(updates.get("role").toString()));
             }
             if (updates.containsKey("xp")) {
-                user.setXp((Integer) updates.get("xp"));
+                userService.setXp(id, ((Number) updates.get("xp")).intValue());
             }
             
-            userService.updateUser(user);
             return ResponseEntity.ok(Map.of("success", true, "message", "User updated successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -1,22 +1,27 @@
 package com.civicchain.controller;
 
+import com.civicchain.dto.ReportListResponse;
+import com.civicchain.dto.ReportPage;
+import com.civicchain.dto.ReportSummary;
+import com.civicchain.dto.VoteSummary;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
 import com.civicchain.model.Verification;
+import com.civicchain.service.HeatmapService;
 import com.civicchain.service.ReportService;
-import com.civicchain.service.UserService;
 import com.civicchain.service.VerificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/community")
@@ -27,10 +32,19 @@ public class CommunityApiController {
     private ReportService reportService;
     
     @Autowired
-    private UserService userService;
+    private VerificationService verificationService;
     
     @Autowired
-    private VerificationService verificationService;
+    private HeatmapService heatmapService;
+    
+    // Also rejects NaN and infinities
+    private static boolean validLatitude(double latitude) {
+        return latitude >= -90 && latitude <= 90;
+    }
+    
+    private static boolean validLongitude(double longitude) {
+        return longitude >= -180 && longitude <= 180;
+    }
     
     private User getCurrentUser(HttpServletRequest request) {
         HttpSession session = request.getSession(false);
@@ -41,81 +55,64 @@ public class CommunityApiController {
     }
     
     @GetMapping("/reports/pending")
-    @Transactional
-    public ResponseEntity<?> getPendingReports(HttpServletRequest request) {
+    public ResponseEntity<?> getPendingReports(HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         User currentUser = getCurrentUser(request);
         if (currentUser == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
         }
         
-        // Get all reports for community validation (including user's own reports)
-        List<Report> allReports = reportService.getAllReports();
+        // Get reports for community validation (including user's own reports), one page at a time
+        ReportPage<ReportSummary> page;
+        try {
+            page = reportService.getReportSummaryPage(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         
-        // Create response with detailed information
-        List<Map<String, Object>> reportsWithVotes = new ArrayList<>();
-        for (Report report : allReports) {
-            Map<String, Object> reportData = new HashMap<>();
-            reportData.put("id", report.getId());
-            reportData.put("title", report.getTitle());
-            reportData.put("description", report.getDescription());
-            reportData.put("category", report.getCategory());
-            reportData.put("severity", report.getSeverity());
-            reportData.put("status", report.getStatus());
-            reportData.put("imagePath", report.getImagePath());
-            reportData.put("location", report.getLocation());
-            reportData.put("latitude", report.getLatitude());
-            reportData.put("longitude", report.getLongitude());
-            reportData.put("upvotes", report.getUpvotes());
-            reportData.put("downvotes", report.getDownvotes());
-            reportData.put("aiVerified", report.getAiVerified());
-            reportData.put("aiConfidence", report.getAiConfidence());
-            reportData.put("createdAt", report.getCreatedAt());
-            
-            // Add reporter information
-            if (report.getReporter() != null) {
-                Map<String, Object> reporter = new HashMap<>();
-                reporter.put("id", report.getReporter().getId());
-                reporter.put("username", report.getReporter().getUsername());
-                reportData.put("reporter", reporter);
-            }
-            
+        // Look up the current user's votes for the whole page at once
+        List<Long> reportIds = page.getReports().stream().map(ReportSummary::id).collect(Collectors.toList());
+        Map<Long, Verification.VoteType> userVotes = verificationService.getUserVotesForReports(currentUser.getId(), reportIds);
+        
+        ReportListResponse response = new ReportListResponse(page).extraFields((report, json) -> {
             // Check if current user has voted
-            boolean hasVoted = verificationService.hasUserVotedOnReport(currentUser.getId(), report.getId());
-            reportData.put("hasVoted", hasVoted);
+            Verification.VoteType vote = userVotes.get(report.id());
+            json.writeBooleanField("hasVoted", vote != null);
             
-            if (hasVoted) {
-                Verification verification = verificationService.getUserVoteForReport(currentUser.getId(), report.getId());
-                reportData.put("userVote", verification.getVote() == Verification.VoteType.UPVOTE ? "up" : "down");
+            if (vote != null) {
+                json.writeStringField("userVote", vote == Verification.VoteType.UPVOTE ? "up" : "down");
             }
-            
-            reportsWithVotes.add(reportData);
-        }
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("reports", reportsWithVotes);
-        response.put("success", true);
+        });
         
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/reports/all")
-    public ResponseEntity<?> getAllReports(HttpServletRequest request) {
+    public ResponseEntity<?> getAllReports(HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         User currentUser = getCurrentUser(request);
         if (currentUser == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
         }
         
-        List<Report> allReports = reportService.getAllReports();
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("reports", allReports);
-        response.put("success", true);
+        ReportPage<ReportSummary> page;
+        try {
+            page = reportService.getReportSummaryPage(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(new ReportListResponse(page));
     }
     
-    @GetMapping("/reports/heatmap")
-    public ResponseEntity<?> getHeatmapData(HttpServletRequest request,
+    // Aggregated per grid cell for the viewport; individual reports are never shipped to the map
+    @GetMapping("/reports/heatmap/cells")
+    public ResponseEntity<?> getHeatmapCells(HttpServletRequest request,
+            @RequestParam double minLat, @RequestParam double minLng,
+            @RequestParam double maxLat, @RequestParam double maxLng,
+            @RequestParam int zoom,
             @RequestParam(required = false) String severity,
             @RequestParam(required = false) String category) {
         User currentUser = getCurrentUser(request);
@@ -123,13 +120,26 @@ public class CommunityApiController {
             return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
         }
         
-        List<Report> reports = reportService.getReportsForHeatmap(severity, category);
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("reports", reports);
-        response.put("success", true);
+        if (zoom < 0 || zoom > 22 || minLat > maxLat || minLng > maxLng
+                || !validLatitude(minLat) || !validLatitude(maxLat) || !validLongitude(minLng) || !validLongitude(maxLng)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid bounding box or zoom"));
+        }
         
-        return ResponseEntity.ok(response);
+        try {
+            Report.Severity severityFilter = severity != null ? Report.Severity.valueOf(severity.toUpperCase()) : null;
+            Report.Category categoryFilter = category != null ? Report.Category.valueOf(category.toUpperCase()) : null;
+            
+            List<HeatmapService.Cell> cells = heatmapService.getCells(minLat, minLng, maxLat, maxLng, zoom, severityFilter, categoryFilter);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("cells", cells);
+            response.put("zoom", zoom);
+            response.put("success", true);
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown severity or category"));
+        }
     }
     
     @PostMapping("/reports/{id}/vote")
@@ -141,46 +151,16 @@ public class CommunityApiController {
         
         try {
             String voteType = voteData.get("voteType"); // "up" or "down"
-            Report report = reportService.getReportById(id).orElseThrow(() -> new RuntimeException("Report not found"));
-            
-            // Check if user already voted on this report
-            boolean hasVoted = verificationService.hasUserVotedOnReport(currentUser.getId(), id);
-            
-            if (hasVoted) {
-                return ResponseEntity.badRequest().body(Map.of("error", "You have already voted on this report"));
-            }
-            
-            // Create verification vote
-            Verification verification = new Verification();
-            verification.setUser(currentUser);
-            verification.setReport(report);
-            verification.setVote(voteType.equals("up") ? Verification.VoteType.UPVOTE : Verification.VoteType.DOWNVOTE);
-            verification.setComment("Community verification vote");
-            
-            verificationService.saveVerification(verification);
-            
-            // Update report vote counts
-            if (voteType.equals("up")) {
-                report.setUpvotes(report.getUpvotes() + 1);
-            } else {
-                report.setDownvotes(report.getDownvotes() + 1);
-            }
-            reportService.updateReport(report);
-            
-            // Award XP to user
-            currentUser.addXp(5); // 5 XP for community voting
-            userService.updateUser(currentUser);
-            
-            // Update session with new user data
-            HttpSession session = request.getSession();
-            session.setAttribute("user", currentUser);
+            boolean upvote = "up".equals(voteType);
+            VoteSummary summary = verificationService.submitVerification(currentUser.getId(), id,
+                upvote ? Verification.VoteType.UPVOTE : Verification.VoteType.DOWNVOTE, "Community verification vote");
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", voteType.equals("up") ? "Report verified!" : "Report disputed!");
+            response.put("message", upvote ? "Report verified!" : "Report disputed!");
             response.put("xpEarned", 5);
-            response.put("newUpvotes", report.getUpvotes());
-            response.put("newDownvotes", report.getDownvotes());
+            response.put("newUpvotes", summary.getUpvotes());
+            response.put("newDownvotes", summary.getDownvotes());
             
             return ResponseEntity.ok(response);
             
@@ -189,6 +169,37 @@ public class CommunityApiController {
         }
     }
     
+    @GetMapping("/reports/votes")
+    public ResponseEntity<?> getReportVotesBatch(@RequestParam List<Long> ids, HttpServletRequest request) {
+        User currentUser = getCurrentUser(request);
+        if (currentUser == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
+        }
+        
+        if (ids.size() > ReportService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + ReportService.MAX_PAGE_SIZE + " report ids per request"));
+        }
+        
+        Map<Long, VoteSummary> summaries = verificationService.getVoteSummaries(currentUser.getId(), new LinkedHashSet<>(ids));
+        
+        // Same shape as /reports/{id}/votes, keyed by report id
+        Map<Long, Map<String, Object>> votes = new LinkedHashMap<>();
+        for (VoteSummary summary : summaries.values()) {
+            Map<String, Object> voteData = new HashMap<>();
+            voteData.put("upvotes", summary.getUpvotes());
+            voteData.put("downvotes", summary.getDownvotes());
+            voteData.put("hasVoted", summary.hasVoted());
+            voteData.put("userVote", summary.hasVoted() ? (summary.getUserVote() == Verification.VoteType.UPVOTE ? "up" : "down") : null);
+            votes.put(summary.getReportId(), voteData);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("votes", votes);
+        response.put("success", true);
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/reports/{id}/votes")
     public ResponseEntity<?> getReportVotes(@PathVariable Long id, HttpServletRequest request) {
         User currentUser = getCurrentUser(request);
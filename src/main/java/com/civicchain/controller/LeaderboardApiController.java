@@ -0,0 +1,60 @@
+package com.civicchain.controller;
+
+import com.civicchain.dto.LeaderboardEntry;
+import com.civicchain.model.User;
+import com.civicchain.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+@CrossOrigin(origins = "*")
+public class LeaderboardApiController {
+
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_RADIUS = 25;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @GetMapping
+    public ResponseEntity<?> getTopUsers(@RequestParam(defaultValue = "10") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("leaderboard", leaderboardService.getTop(Math.max(1, Math.min(limit, MAX_LIMIT))));
+        response.put("totalUsers", leaderboardService.size());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<?> getMyRank(HttpServletRequest request, @RequestParam(defaultValue = "2") int radius) {
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("user") == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
+        }
+        User currentUser = (User) session.getAttribute("user");
+        return getUserRank(currentUser.getId(), radius);
+    }
+
+    @GetMapping("/users/{id}")
+    public ResponseEntity<?> getUserRank(@PathVariable Long id, @RequestParam(defaultValue = "2") int radius) {
+        Optional<LeaderboardEntry> entry = leaderboardService.getEntry(id);
+        if (entry.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("entry", entry.get());
+        response.put("around", leaderboardService.getAround(id, Math.max(0, Math.min(radius, MAX_RADIUS))));
+        response.put("totalUsers", leaderboardService.size());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -2,6 +2,8 @@ package com.civicchain.controller;
 
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
+import com.civicchain.service.DashboardStatsService;
+import com.civicchain.service.LeaderboardService;
 import com.civicchain.service.ReportService;
 import com.civicchain.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,12 @@ public class PortalController {
     @Autowired
     private ReportService reportService;
     
+    @Autowired
+    private DashboardStatsService statsService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
     @GetMapping("/")
     public String home() {
         return "redirect:/login";
@@ -83,17 +91,20 @@ public class PortalController {
         }
         
         User currentUser = (User) session.getAttribute("user");
+        // The session copy is only a display cache; XP is applied from the ledger in the background
+        leaderboardService.getEntry(currentUser.getId()).ifPresent(entry -> {
+            currentUser.setXp(entry.getXp());
+            currentUser.setLevel(entry.getLevel());
+        });
         model.addAttribute("currentUser", currentUser);
         
         // Sample data for user portal
-        List<Report> allReports = reportService.getAllReports();
-        List<Report> pendingReports = reportService.getPendingReports();
-        List<User> leaderboard = userService.getTopUsersByXp();
+        List<Report> recentReports = reportService.getReportPage(null, 5).getReports();
         
-        model.addAttribute("totalReports", allReports.size());
-        model.addAttribute("pendingReports", pendingReports.size());
-        model.addAttribute("reports", allReports.size() > 5 ? allReports.subList(0, 5) : allReports);
-        model.addAttribute("leaderboard", leaderboard.size() > 10 ? leaderboard.subList(0, 10) : leaderboard);
+        model.addAttribute("totalReports", statsService.getTotalReports());
+        model.addAttribute("pendingReports", statsService.getReportCount(Report.Status.PENDING));
+        model.addAttribute("reports", recentReports);
+        model.addAttribute("leaderboard", leaderboardService.getTop(10));
         
         return "user-portal";
     }
@@ -115,17 +126,12 @@ public class PortalController {
         model.addAttribute("currentUser", currentUser);
         
         // Sample data for admin portal
-        List<Report> allReports = reportService.getAllReports();
-        List<Report> pendingReports = reportService.getPendingReports();
-        List<Report> verifiedReports = reportService.getVerifiedReports();
-        List<User> allUsers = userService.getAllUsers();
-        
-        model.addAttribute("totalReports", allReports.size());
-        model.addAttribute("pendingReports", pendingReports.size());
-        model.addAttribute("verifiedReports", verifiedReports.size());
-        model.addAttribute("totalUsers", allUsers.size());
-        model.addAttribute("reports", pendingReports.size() > 10 ? pendingReports.subList(0, 10) : pendingReports);
-        model.addAttribute("users", allUsers.size() > 10 ? allUsers.subList(0, 10) : allUsers);
+        model.addAttribute("totalReports", statsService.getTotalReports());
+        model.addAttribute("pendingReports", statsService.getReportCount(Report.Status.PENDING));
+        model.addAttribute("verifiedReports", statsService.getReportCount(Report.Status.VERIFIED));
+        model.addAttribute("totalUsers", statsService.getTotalUsers());
+        model.addAttribute("reports", reportService.getRecentReportsByStatus(Report.Status.PENDING));
+        model.addAttribute("users", userService.getFirstUsers(10));
         
         return "admin-portal";
     }
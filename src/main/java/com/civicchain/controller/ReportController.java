@@ -1,19 +1,22 @@
 package com.civicchain.controller;
 
+import com.civicchain.dto.ReportListResponse;
+import com.civicchain.dto.ReportPage;
+import com.civicchain.dto.ReportSummary;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
 import com.civicchain.service.ReportService;
+import com.civicchain.service.UploadStorageService;
 import com.civicchain.service.UserService;
 import com.civicchain.service.VerificationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -29,13 +32,24 @@ public class ReportController {
     @Autowired
     private VerificationService verificationService;
     
+    @Autowired
+    private UploadStorageService uploadStorage;
+    
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllReports() {
-        List<Report> reports = reportService.getAllReports();
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("reports", reports.stream().map(this::mapReportToResponse).collect(Collectors.toList()));
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getAllReports(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        ReportPage<ReportSummary> page;
+        try {
+            page = reportService.getReportSummaryPage(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        return ResponseEntity.ok(new ReportListResponse(page));
     }
     
     @GetMapping("/{id}")
@@ -51,54 +65,52 @@ public class ReportController {
     }
     
     @GetMapping("/pending")
-    public ResponseEntity<Map<String, Object>> getPendingReports() {
-        List<Report> reports = reportService.getPendingReports();
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("reports", reports.stream().map(this::mapReportToResponse).collect(Collectors.toList()));
-        return ResponseEntity.ok(response);
+    public ResponseEntity<ReportListResponse> getPendingReports() {
+        return ResponseEntity.ok(new ReportListResponse(reportService.getReportSummariesByStatus(Report.Status.PENDING)));
     }
     
     @GetMapping("/verified")
-    public ResponseEntity<Map<String, Object>> getVerifiedReports() {
-        List<Report> reports = reportService.getVerifiedReports();
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("reports", reports.stream().map(this::mapReportToResponse).collect(Collectors.toList()));
-        return ResponseEntity.ok(response);
+    public ResponseEntity<ReportListResponse> getVerifiedReports() {
+        return ResponseEntity.ok(new ReportListResponse(reportService.getReportSummariesByStatus(Report.Status.VERIFIED)));
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getReportsByUser(@PathVariable Long userId) {
-        User user = userService.getUserById(userId).orElse(null);
-        if (user == null) {
+    public ResponseEntity<ReportListResponse> getReportsByUser(@PathVariable Long userId) {
+        if (userService.getUserById(userId).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Report> reports = reportService.getReportsByUser(user);
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("reports", reports.stream().map(this::mapReportToResponse).collect(Collectors.toList()));
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(new ReportListResponse(reportService.getReportSummariesByReporter(userId)));
     }
     
-    @PostMapping
-    public ResponseEntity<Map<String, Object>> createReport(
-            @RequestParam("title") String title,
-            @RequestParam("description") String description,
-            @RequestParam("category") String category,
-            @RequestParam("userId") Long userId,
-            @RequestParam(value = "latitude", required = false) Double latitude,
-            @RequestParam(value = "longitude", required = false) Double longitude,
-            @RequestParam(value = "location", required = false) String location,
-            @RequestParam(value = "image", required = false) MultipartFile imageFile,
-            @RequestParam(value = "audio", required = false) MultipartFile audioFile) {
+    // Parsed by hand rather than with @RequestParam MultipartFile, so image and audio bytes are streamed
+    // straight into their final files (multipart resolution is lazy, see spring.servlet.multipart)
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> createReport(HttpServletRequest request) {
         
         Map<String, Object> response = new HashMap<>();
+        UploadStorageService.UploadForm form = null;
         
         try {
+            form = uploadStorage.readForm(request, Map.of("image", "images", "audio", "audio"));
+            String title = form.getField("title");
+            String description = form.getField("description");
+            String category = form.getField("category");
+            String userIdField = form.getField("userId");
+            if (title == null || description == null || category == null || userIdField == null) {
+                form.getFiles().values().forEach(uploadStorage::delete);
+                response.put("success", false);
+                response.put("message", "title, description, category and userId are required");
+                return ResponseEntity.badRequest().body(response);
+            }
+            Long userId = Long.valueOf(userIdField);
+            Double latitude = parseDouble(form.getField("latitude"));
+            Double longitude = parseDouble(form.getField("longitude"));
+            String location = form.getField("location");
+            
             User user = userService.getUserById(userId).orElse(null);
             if (user == null) {
+                form.getFiles().values().forEach(uploadStorage::delete);
                 response.put("success", false);
                 response.put("message", "User not found");
                 return ResponseEntity.badRequest().body(response);
@@ -113,20 +125,37 @@ public class ReportController {
             report.setLongitude(longitude);
             report.setLocation(location);
             
-            Report savedReport = reportService.createReport(report, imageFile, audioFile);
+            Report savedReport = reportService.createReport(report, form.getFile("image"), form.getFile("audio"));
+            // The service owns the files from here on
+            form = null;
             
             response.put("success", true);
-            response.put("message", "Report created successfully");
+            if (report.getId() == null) {
+                // Merged: the new report was not stored and savedReport is the earlier one
+                response.put("message", "Report merged into existing report #" + savedReport.getId());
+                response.put("merged", true);
+            } else if (savedReport.getDuplicateOfId() != null) {
+                response.put("message", "Report created as a duplicate of report #" + savedReport.getDuplicateOfId());
+            } else {
+                response.put("message", "Report created successfully");
+            }
             response.put("report", mapReportToResponse(savedReport));
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
+            if (form != null) {
+                form.getFiles().values().forEach(uploadStorage::delete);
+            }
             response.put("success", false);
             response.put("message", "Failed to create report: " + e.getMessage());
             return ResponseEntity.badRequest().body(response);
         }
     }
     
+    private static Double parseDouble(String value) {
+        return value == null || value.isBlank() ? null : Double.valueOf(value.trim());
+    }
+    
     @PutMapping("/{id}/approve")
     public ResponseEntity<Map<String, Object>> approveReport(@PathVariable Long id) {
         Map<String, Object> response = new HashMap<>();
@@ -175,11 +204,15 @@ public class ReportController {
         reportMap.put("aiConfidence", report.getAiConfidence());
         reportMap.put("aiPrediction", report.getAiPrediction());
         reportMap.put("imagePath", report.getImagePath());
+        reportMap.put("imageVariants", report.getImageVariants());
         reportMap.put("audioPath", report.getAudioPath());
+        reportMap.put("audioDurationMs", report.getAudioDurationMs());
         reportMap.put("latitude", report.getLatitude());
         reportMap.put("longitude", report.getLongitude());
         reportMap.put("location", report.getLocation());
         reportMap.put("createdAt", report.getCreatedAt());
+        reportMap.put("duplicateOfId", report.getDuplicateOfId());
+        reportMap.put("duplicateCount", report.getDuplicateCount());
         
         if (report.getReporter() != null) {
             reportMap.put("reporter", Map.of(
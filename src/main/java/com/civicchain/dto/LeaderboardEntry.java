@@ -0,0 +1,37 @@
+package com.civicchain.dto;
+
+public class LeaderboardEntry {
+    private final int rank;
+    private final Long id;
+    private final String username;
+    private final Integer xp;
+    private final Integer level;
+
+    public LeaderboardEntry(int rank, Long id, String username, Integer xp, Integer level) {
+        this.rank = rank;
+        this.id = id;
+        this.username = username;
+        this.xp = xp;
+        this.level = level;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Integer getXp() {
+        return xp;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,33 @@
+package com.civicchain.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// The fields of an ML service /verify result that are stored on the report
+public class MLVerificationResult {
+    private final boolean aiVerified;
+    private final double confidence;
+    private final String prediction;
+
+    public MLVerificationResult(boolean aiVerified, double confidence, String prediction) {
+        this.aiVerified = aiVerified;
+        this.confidence = confidence;
+        this.prediction = prediction;
+    }
+
+    public static MLVerificationResult fromJson(JsonNode json) {
+        return new MLVerificationResult(json.get("ai_verified").asBoolean(), json.get("confidence").asDouble(),
+            json.get("prediction").asText());
+    }
+
+    public boolean isAiVerified() {
+        return aiVerified;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public String getPrediction() {
+        return prediction;
+    }
+}
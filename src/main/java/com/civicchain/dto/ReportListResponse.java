@@ -0,0 +1,154 @@
+package com.civicchain.dto;
+
+import com.civicchain.model.Report;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Report list body written field by field into Jackson's generator, without per-report maps
+public class ReportListResponse extends JsonSerializable.Base {
+
+    @FunctionalInterface
+    public interface ExtraFields {
+        void write(ReportSummary report, JsonGenerator json) throws IOException;
+    }
+
+    private final List<ReportSummary> reports;
+    private final String nextCursor;
+    private final boolean paged;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private boolean includeReporterEmail;
+    private ExtraFields extraFields;
+
+    public ReportListResponse(List<ReportSummary> reports) {
+        this.reports = reports;
+        this.nextCursor = null;
+        this.paged = false;
+    }
+
+    public ReportListResponse(ReportPage<ReportSummary> page) {
+        this.reports = page.getReports();
+        this.nextCursor = page.getNextCursor();
+        this.paged = true;
+    }
+
+    public ReportListResponse with(String name, Object value) {
+        attributes.put(name, value);
+        return this;
+    }
+
+    public ReportListResponse includeReporterEmail() {
+        this.includeReporterEmail = true;
+        return this;
+    }
+
+    public ReportListResponse extraFields(ExtraFields extraFields) {
+        this.extraFields = extraFields;
+        return this;
+    }
+
+    @Override
+    public void serialize(JsonGenerator json, SerializerProvider provider) throws IOException {
+        json.writeStartObject();
+        json.writeBooleanField("success", true);
+
+        json.writeArrayFieldStart("reports");
+        for (ReportSummary report : reports) {
+            writeReport(report, json, provider);
+        }
+        json.writeEndArray();
+
+        if (paged) {
+            json.writeStringField("nextCursor", nextCursor);
+            json.writeBooleanField("hasMore", nextCursor != null);
+        }
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            provider.defaultSerializeField(attribute.getKey(), attribute.getValue(), json);
+        }
+        json.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator json, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        serialize(json, provider);
+    }
+
+    private void writeReport(ReportSummary report, JsonGenerator json, SerializerProvider provider) throws IOException {
+        json.writeStartObject();
+        writeNumber(json, "id", report.id());
+        json.writeStringField("title", report.title());
+        json.writeStringField("description", report.description());
+        writeEnum(json, "category", report.category());
+        writeEnum(json, "severity", report.severity());
+        writeEnum(json, "status", report.status());
+        json.writeStringField("imagePath", report.imagePath());
+        json.writeObjectFieldStart("imageVariants");
+        for (Map.Entry<String, String> variant : Report.imageVariantPaths(report.imagePath(), report.imageVariantWidths()).entrySet()) {
+            json.writeStringField(variant.getKey(), variant.getValue());
+        }
+        json.writeEndObject();
+        json.writeStringField("audioPath", report.audioPath());
+        writeNumber(json, "audioDurationMs", report.audioDurationMs());
+        json.writeStringField("location", report.location());
+        writeNumber(json, "latitude", report.latitude());
+        writeNumber(json, "longitude", report.longitude());
+        writeNumber(json, "upvotes", report.upvotes());
+        writeNumber(json, "downvotes", report.downvotes());
+        writeBoolean(json, "aiVerified", report.aiVerified());
+        writeNumber(json, "aiConfidence", report.aiConfidence());
+        json.writeStringField("aiPrediction", report.aiPrediction());
+        writeBoolean(json, "verified", report.verified());
+        writeNumber(json, "duplicateOfId", report.duplicateOfId());
+        writeNumber(json, "duplicateCount", report.duplicateCount());
+        // Dates go through the configured mapper so the format matches other endpoints
+        provider.defaultSerializeField("createdAt", report.createdAt(), json);
+
+        if (report.reporterId() != null) {
+            json.writeObjectFieldStart("reporter");
+            json.writeNumberField("id", report.reporterId());
+            json.writeStringField("username", report.reporterUsername());
+            writeNumber(json, "level", report.reporterLevel());
+            if (includeReporterEmail) {
+                json.writeStringField("email", report.reporterEmail());
+            }
+            json.writeEndObject();
+        }
+
+        if (extraFields != null) {
+            extraFields.write(report, json);
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator json, String name, Number value) throws IOException {
+        json.writeFieldName(name);
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Double) {
+            json.writeNumber(value.doubleValue());
+        } else if (value instanceof Long) {
+            json.writeNumber(value.longValue());
+        } else {
+            json.writeNumber(value.intValue());
+        }
+    }
+
+    private static void writeBoolean(JsonGenerator json, String name, Boolean value) throws IOException {
+        json.writeFieldName(name);
+        if (value == null) {
+            json.writeNull();
+        } else {
+            json.writeBoolean(value);
+        }
+    }
+
+    private static void writeEnum(JsonGenerator json, String name, Enum<?> value) throws IOException {
+        json.writeStringField(name, value == null ? null : value.name());
+    }
+}
@@ -0,0 +1,25 @@
+package com.civicchain.dto;
+
+import java.util.List;
+
+public class ReportPage<T> {
+    private final List<T> reports;
+    private final String nextCursor;
+
+    public ReportPage(List<T> reports, String nextCursor) {
+        this.reports = reports;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getReports() {
+        return reports;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
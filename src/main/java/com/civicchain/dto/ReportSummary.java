@@ -0,0 +1,42 @@
+package com.civicchain.dto;
+
+import com.civicchain.model.Report;
+
+import java.time.LocalDateTime;
+
+// Read-only report row for list endpoints, built straight from JPQL constructor expressions
+public record ReportSummary(
+        Long id,
+        String title,
+        String description,
+        Report.Category category,
+        Report.Severity severity,
+        Report.Status status,
+        String imagePath,
+        String imageVariantWidths,
+        String audioPath,
+        Integer audioDurationMs,
+        String location,
+        Double latitude,
+        Double longitude,
+        Integer upvotes,
+        Integer downvotes,
+        Boolean aiVerified,
+        Double aiConfidence,
+        String aiPrediction,
+        Boolean verified,
+        Long duplicateOfId,
+        Integer duplicateCount,
+        LocalDateTime createdAt,
+        Long reporterId,
+        String reporterUsername,
+        String reporterEmail,
+        Integer reporterLevel) {
+
+    // Select list shared by every summary query; expects the reporter joined as "u"
+    public static final String SELECT = "SELECT new com.civicchain.dto.ReportSummary(" +
+            "r.id, r.title, r.description, r.category, r.severity, r.status, r.imagePath, r.imageVariantWidths, r.audioPath, r.audioDurationMs, " +
+            "r.location, r.latitude, r.longitude, r.upvotes, r.downvotes, r.aiVerified, r.aiConfidence, " +
+            "r.aiPrediction, r.verified, r.duplicateOfId, r.duplicateCount, r.createdAt, u.id, u.username, u.email, u.level) " +
+            "FROM Report r LEFT JOIN r.reporter u ";
+}
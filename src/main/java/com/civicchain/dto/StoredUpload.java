@@ -0,0 +1,42 @@
+package com.civicchain.dto;
+
+// An upload as streamed to the staging area under uploads/, with what was learned about it on the way.
+// It reaches its content-addressed path once a report takes a reference to it (UploadStorageService.attach).
+public class StoredUpload {
+    private final String path;
+    private final String stagingPath;
+    private final String sha256;
+    private final long size;
+    private final String contentType;
+
+    public StoredUpload(String path, String stagingPath, String sha256, long size, String contentType) {
+        this.path = path;
+        this.stagingPath = stagingPath;
+        this.sha256 = sha256;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    // Relative to the uploads directory, e.g. "images/ab/cd/<sha256>.jpg"
+    public String getPath() {
+        return path;
+    }
+
+    // Relative to the uploads directory, e.g. ".staging/<uuid>"
+    public String getStagingPath() {
+        return stagingPath;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    // Sniffed from the leading bytes, not taken from the client
+    public String getContentType() {
+        return contentType;
+    }
+}
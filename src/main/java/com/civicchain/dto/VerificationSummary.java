@@ -0,0 +1,18 @@
+package com.civicchain.dto;
+
+import com.civicchain.model.Verification;
+
+import java.time.LocalDateTime;
+
+// Read-only verification row for exports, built straight from a JPQL constructor expression
+public record VerificationSummary(
+        Long id,
+        Long reportId,
+        Long userId,
+        Verification.VoteType vote,
+        String comment,
+        LocalDateTime createdAt) {
+
+    public static final String SELECT = "SELECT new com.civicchain.dto.VerificationSummary(" +
+            "v.id, v.report.id, v.user.id, v.vote, v.comment, v.createdAt) FROM Verification v ";
+}
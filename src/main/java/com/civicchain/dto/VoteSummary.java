@@ -0,0 +1,37 @@
+package com.civicchain.dto;
+
+import com.civicchain.model.Verification;
+
+public class VoteSummary {
+    private final Long reportId;
+    private final Integer upvotes;
+    private final Integer downvotes;
+    private final Verification.VoteType userVote;
+
+    public VoteSummary(Long reportId, Integer upvotes, Integer downvotes, Verification.VoteType userVote) {
+        this.reportId = reportId;
+        this.upvotes = upvotes;
+        this.downvotes = downvotes;
+        this.userVote = userVote;
+    }
+
+    public Long getReportId() {
+        return reportId;
+    }
+
+    public Integer getUpvotes() {
+        return upvotes;
+    }
+
+    public Integer getDownvotes() {
+        return downvotes;
+    }
+
+    public Verification.VoteType getUserVote() {
+        return userVote;
+    }
+
+    public boolean hasVoted() {
+        return userVote != null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.civicchain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Outbox row for one report's AI verification. Inserted with the report, claimed by
+// MLJobService workers under a time-limited lease, retried with backoff, dead-lettered at the end.
+@Entity
+@Table(name = "ml_jobs", indexes = {
+    @Index(name = "idx_ml_jobs_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class MLJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Plain column so deleting a report never trips over its finished jobs
+    @Column(name = "report_id", nullable = false)
+    private Long reportId;
+    
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+    
+    private Integer attempts = 0;
+    
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+    
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
+    public enum Status {
+        PENDING, RUNNING, DONE, DEAD
+    }
+    
+    // Constructors
+    public MLJob() {}
+    
+    public MLJob(Long reportId) {
+        this.reportId = reportId;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getReportId() {
+        return reportId;
+    }
+    
+    public void setReportId(Long reportId) {
+        this.reportId = reportId;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+    
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+    
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -3,13 +3,19 @@ package com.civicchain.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = {
+    @Index(name = "idx_reports_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_reports_duplicate_of", columnList = "duplicate_of_id")
+})
 public class Report {
     
     @Id
@@ -36,6 +42,10 @@ public class Report {
     private String imagePath;
     private String audioPath;
     
+    // Length of the voice note, once the audio pipeline has looked at it
+    @Column(name = "audio_duration_ms")
+    private Integer audioDurationMs;
+    
     private Double latitude;
     private Double longitude;
     private String location;
@@ -45,6 +55,25 @@ public class Report {
     private String aiPrediction;
     private Boolean aiVerified = false;
     
+    // Image fingerprints, so repeat uploads can reuse an earlier AI result
+    @Column(name = "image_sha256", length = 64)
+    private String imageSha256;
+    
+    @Column(name = "image_phash")
+    private Long imagePhash;
+    
+    // Widths of the downscaled JPEG copies rendered next to the image ("160,480"); null until they are done
+    @Column(name = "image_variant_widths", length = 64)
+    private String imageVariantWidths;
+    
+    // Set on reports filed within the duplicate radius/window of an earlier one; votes go to that report
+    @Column(name = "duplicate_of_id")
+    private Long duplicateOfId;
+    
+    // Duplicates folded into this report
+    @Column(name = "duplicate_count")
+    private Integer duplicateCount = 0;
+    
     // Community Verification
     private Integer upvotes = 0;
     private Integer downvotes = 0;
@@ -85,7 +114,13 @@ public class Report {
     
     // Helper methods
     public boolean isAutoVerifiable() {
-        return (aiVerified && aiConfidence > 0.9) || (upvotes >= 2 && upvotes > downvotes);
+        return isAutoVerifiable(aiVerified, aiConfidence, upvotes, downvotes);
+    }
+    
+    // Same rule for callers that only have the column values, e.g. after an atomic vote increment
+    public static boolean isAutoVerifiable(Boolean aiVerified, Double aiConfidence, int upvotes, int downvotes) {
+        return (Boolean.TRUE.equals(aiVerified) && aiConfidence != null && aiConfidence > 0.9)
+            || (upvotes >= 2 && upvotes > downvotes);
     }
     
     public void addUpvote() {
@@ -205,6 +240,77 @@ public class Report {
         this.aiVerified = aiVerified;
     }
     
+    public String getImageSha256() {
+        return imageSha256;
+    }
+    
+    public void setImageSha256(String imageSha256) {
+        this.imageSha256 = imageSha256;
+    }
+    
+    public Long getImagePhash() {
+        return imagePhash;
+    }
+    
+    public void setImagePhash(Long imagePhash) {
+        this.imagePhash = imagePhash;
+    }
+    
+    public Integer getAudioDurationMs() {
+        return audioDurationMs;
+    }
+    
+    public void setAudioDurationMs(Integer audioDurationMs) {
+        this.audioDurationMs = audioDurationMs;
+    }
+    
+    @JsonIgnore
+    public String getImageVariantWidths() {
+        return imageVariantWidths;
+    }
+    
+    public void setImageVariantWidths(String imageVariantWidths) {
+        this.imageVariantWidths = imageVariantWidths;
+    }
+    
+    // Width -> path of each rendered variant, e.g. {"160": "images/ab/cd/<sha256>-160.jpg"}
+    public Map<String, String> getImageVariants() {
+        return imageVariantPaths(imagePath, imageVariantWidths);
+    }
+    
+    public static String imageVariantPath(String imagePath, int width) {
+        int dot = imagePath.lastIndexOf('.');
+        String base = dot > imagePath.lastIndexOf('/') ? imagePath.substring(0, dot) : imagePath;
+        return base + "-" + width + ".jpg";
+    }
+    
+    public static Map<String, String> imageVariantPaths(String imagePath, String widths) {
+        Map<String, String> paths = new LinkedHashMap<>();
+        if (imagePath == null || widths == null || widths.isEmpty()) {
+            return paths;
+        }
+        for (String width : widths.split(",")) {
+            paths.put(width, imageVariantPath(imagePath, Integer.parseInt(width)));
+        }
+        return paths;
+    }
+    
+    public Long getDuplicateOfId() {
+        return duplicateOfId;
+    }
+    
+    public void setDuplicateOfId(Long duplicateOfId) {
+        this.duplicateOfId = duplicateOfId;
+    }
+    
+    public Integer getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    public void setDuplicateCount(Integer duplicateCount) {
+        this.duplicateCount = duplicateCount;
+    }
+    
     public Integer getUpvotes() {
         return upvotes;
     }
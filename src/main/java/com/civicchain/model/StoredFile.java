@@ -0,0 +1,102 @@
+package com.civicchain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One content-addressed file under uploads/ and how many report image/audio paths point at it.
+// The file is deleted when the last reference goes.
+@Entity
+@Table(name = "stored_files", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stored_files_path", columnNames = "path")
+})
+public class StoredFile {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Relative to uploads/, e.g. images/ab/cd/<sha256>.jpg
+    @Column(nullable = false, length = 200)
+    private String path;
+    
+    @Column(length = 64, nullable = false)
+    private String sha256;
+    
+    private Long size;
+    
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+    
+    @Column(name = "ref_count")
+    private Integer refCount = 1;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // Constructors
+    public StoredFile() {}
+    
+    public StoredFile(String path, String sha256, Long size, String contentType) {
+        this.path = path;
+        this.sha256 = sha256;
+        this.size = size;
+        this.contentType = contentType;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    public String getSha256() {
+        return sha256;
+    }
+    
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+    
+    public Long getSize() {
+        return size;
+    }
+    
+    public void setSize(Long size) {
+        this.size = size;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public Integer getRefCount() {
+        return refCount;
+    }
+    
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
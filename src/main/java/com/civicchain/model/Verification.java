@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "verifications")
+@Table(name = "verifications", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_verifications_user_report", columnNames = {"user_id", "report_id"})
+})
 public class Verification {
     
     @Id
@@ -0,0 +1,107 @@
+package com.civicchain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One row per XP award. Rows are only ever inserted and then marked applied once
+// XpLedgerService has folded them into users.xp / level.
+@Entity
+@Table(name = "xp_events", indexes = {
+    @Index(name = "idx_xp_events_applied_id", columnList = "applied, id"),
+    @Index(name = "idx_xp_events_user_id", columnList = "user_id")
+})
+public class XpEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Plain column rather than a relation so inserts never load or lock the user row
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Integer amount;
+    
+    @Enumerated(EnumType.STRING)
+    private Reason reason;
+    
+    @Column(name = "report_id")
+    private Long reportId;
+    
+    private Boolean applied = false;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    public enum Reason {
+        REPORT_SUBMITTED, VOTE_CAST, ADMIN_ADJUSTMENT
+    }
+    
+    // Constructors
+    public XpEvent() {}
+    
+    public XpEvent(Long userId, Integer amount, Reason reason, Long reportId) {
+        this.userId = userId;
+        this.amount = amount;
+        this.reason = reason;
+        this.reportId = reportId;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Integer getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+    
+    public Reason getReason() {
+        return reason;
+    }
+    
+    public void setReason(Reason reason) {
+        this.reason = reason;
+    }
+    
+    public Long getReportId() {
+        return reportId;
+    }
+    
+    public void setReportId(Long reportId) {
+        this.reportId = reportId;
+    }
+    
+    public Boolean getApplied() {
+        return applied;
+    }
+    
+    public void setApplied(Boolean applied) {
+        this.applied = applied;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,89 @@
+package com.civicchain.repository;
+
+import com.civicchain.model.MLJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// The state changes below are single conditional UPDATEs, each in its own transaction, so several
+// application instances can work the same table: only the worker whose UPDATE matched owns the job.
+// The owner is a per-claim lease token, so the outcome UPDATEs also act as a fencing check.
+@Repository
+public interface MLJobRepository extends JpaRepository<MLJob, Long> {
+    
+    List<MLJob> findByStatusOrderByUpdatedAtDesc(MLJob.Status status, Pageable pageable);
+    
+    // id, reportId, attempts of jobs that are due or whose lease has run out
+    @Query("SELECT j.id, j.reportId, j.attempts FROM MLJob j " +
+           "WHERE (j.status = com.civicchain.model.MLJob.Status.PENDING AND j.nextAttemptAt <= :now) " +
+           "OR (j.status = com.civicchain.model.MLJob.Status.RUNNING AND j.leaseExpiresAt < :now) " +
+           "ORDER BY j.nextAttemptAt")
+    List<Object[]> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Query("SELECT j.status, COUNT(j) FROM MLJob j GROUP BY j.status")
+    List<Object[]> countByStatus();
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.RUNNING, j.attempts = j.attempts + 1, " +
+           "j.leaseOwner = :owner, j.leaseExpiresAt = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND ((j.status = com.civicchain.model.MLJob.Status.PENDING AND j.nextAttemptAt <= :now) " +
+           "OR (j.status = com.civicchain.model.MLJob.Status.RUNNING AND j.leaseExpiresAt < :now))")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("now") LocalDateTime now);
+    
+    // Extends the lease as long as this claim still holds the job, even if it ran out meanwhile: a later
+    // claim only matches once the lease is past, so whichever UPDATE lands first wins
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.leaseExpiresAt = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = com.civicchain.model.MLJob.Status.RUNNING")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.DONE, j.leaseExpiresAt = null, " +
+           "j.lastError = null, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = com.civicchain.model.MLJob.Status.RUNNING")
+    int complete(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.PENDING, j.nextAttemptAt = :nextAttemptAt, " +
+           "j.leaseExpiresAt = null, j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = com.civicchain.model.MLJob.Status.RUNNING")
+    int retry(@Param("id") Long id, @Param("owner") String owner, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+              @Param("error") String error, @Param("now") LocalDateTime now);
+    
+    // Hands a claimed job back without spending an attempt, e.g. when the local pool is full
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.PENDING, j.attempts = j.attempts - 1, " +
+           "j.nextAttemptAt = :nextAttemptAt, j.leaseExpiresAt = null, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = com.civicchain.model.MLJob.Status.RUNNING")
+    int release(@Param("id") Long id, @Param("owner") String owner, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.DEAD, j.leaseExpiresAt = null, " +
+           "j.lastError = :error, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = com.civicchain.model.MLJob.Status.RUNNING")
+    int deadLetter(@Param("id") Long id, @Param("owner") String owner, @Param("error") String error,
+                   @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MLJob j SET j.status = com.civicchain.model.MLJob.Status.PENDING, j.attempts = 0, " +
+           "j.nextAttemptAt = :now, j.leaseOwner = null, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.status = com.civicchain.model.MLJob.Status.DEAD")
+    int requeue(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -1,19 +1,32 @@
 package com.civicchain.repository;
 
+import com.civicchain.dto.ReportSummary;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long> {
     
     List<Report> findByReporter(User reporter);
     
+    // Held by deleteReport until it commits, so the paths it reads are the ones it releases
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Report r WHERE r.id = :id")
+    Optional<Report> findByIdForUpdate(@Param("id") Long id);
+    
     List<Report> findByStatus(Report.Status status);
     
     List<Report> findByCategory(Report.Category category);
@@ -30,16 +43,128 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r ORDER BY r.createdAt DESC")
     List<Report> findAllReportsOrderByDate();
     
+    // Keyset paging over (createdAt, id); callers pass PageRequest.of(0, size) as the limit
+    @Query("SELECT r FROM Report r LEFT JOIN FETCH r.reporter ORDER BY r.createdAt DESC, r.id DESC")
+    List<Report> findFirstPage(Pageable pageable);
+    
+    @Query("SELECT r FROM Report r LEFT JOIN FETCH r.reporter " +
+           "WHERE r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Report> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    // Projection variants of the feeds above: no managed entities, reporter columns joined in
+    @Query(ReportSummary.SELECT + "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReportSummary> findFirstSummaryPage(Pageable pageable);
+    
+    @Query(ReportSummary.SELECT +
+           "WHERE r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReportSummary> findSummaryPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query(ReportSummary.SELECT + "WHERE r.status = :status ORDER BY r.createdAt DESC")
+    List<ReportSummary> findSummariesByStatus(@Param("status") Report.Status status);
+    
+    @Query(ReportSummary.SELECT + "WHERE u.id = :reporterId ORDER BY r.createdAt DESC")
+    List<ReportSummary> findSummariesByReporterId(@Param("reporterId") Long reporterId);
+    
     @Query("SELECT COUNT(r) FROM Report r WHERE r.status = :status")
     Long countByStatus(@Param("status") Report.Status status);
     
-    List<Report> findBySeverity(Report.Severity severity);
+    // Seed for the dashboard counters: status, severity, category, reporterId, count, upvotes, downvotes
+    @Query("SELECT r.status, r.severity, r.category, u.id, COUNT(r), SUM(r.upvotes), SUM(r.downvotes) " +
+           "FROM Report r LEFT JOIN r.reporter u GROUP BY r.status, r.severity, r.category, u.id")
+    List<Object[]> countGroupedForStats();
     
-    List<Report> findBySeverityAndCategory(Report.Severity severity, Report.Category category);
+    List<Report> findTop10ByStatusOrderByCreatedAtDesc(Report.Status status);
     
     @Query("SELECT COUNT(r) FROM Report r WHERE r.severity = :severity")
     Long countBySeverity(@Param("severity") Report.Severity severity);
     
     @Query("SELECT r FROM Report r WHERE r.latitude IS NOT NULL AND r.longitude IS NOT NULL ORDER BY r.createdAt DESC")
     List<Report> findReportsWithLocation();
+    
+    // id, latitude, longitude, severity, category of located reports; feeds the heatmap grid at startup
+    @Query("SELECT r.id, r.latitude, r.longitude, r.severity, r.category FROM Report r " +
+           "WHERE r.latitude IS NOT NULL AND r.longitude IS NOT NULL")
+    List<Object[]> findHeatmapPoints();
+    
+    @Query("SELECT r FROM Report r LEFT JOIN FETCH r.reporter WHERE r.id = :id")
+    Optional<Report> findWithReporterById(@Param("id") Long id);
+    
+    // Canonical reports for the duplicate index: [id, category, latitude, longitude, createdAt, reporterId]
+    @Query("SELECT r.id, r.category, r.latitude, r.longitude, r.createdAt, u.id FROM Report r LEFT JOIN r.reporter u " +
+           "WHERE r.createdAt >= :since AND r.duplicateOfId IS NULL AND r.latitude IS NOT NULL AND r.longitude IS NOT NULL " +
+           "AND r.status NOT IN (com.civicchain.model.Report.Status.REJECTED, com.civicchain.model.Report.Status.RESOLVED)")
+    List<Object[]> findDuplicateIndexRows(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT r.duplicateOfId FROM Report r WHERE r.id = :id")
+    Optional<Long> findDuplicateOfId(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Report r SET r.duplicateCount = COALESCE(r.duplicateCount, 0) + 1 WHERE r.id = :id")
+    int incrementDuplicateCount(@Param("id") Long id);
+    
+    // Duplicates of a deleted report become canonical reports of their own
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.duplicateOfId = NULL WHERE r.duplicateOfId = :id")
+    int clearDuplicateOf(@Param("id") Long id);
+    
+    // Vote counters are bumped in SQL so concurrent voters never overwrite each other's increments
+    @Modifying
+    @Query("UPDATE Report r SET r.upvotes = r.upvotes + 1 WHERE r.id = :id")
+    int incrementUpvotes(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Report r SET r.downvotes = r.downvotes + 1 WHERE r.id = :id")
+    int incrementDownvotes(@Param("id") Long id);
+    
+    // status, upvotes, downvotes, aiVerified, aiConfidence as currently stored
+    @Query("SELECT r.status, r.upvotes, r.downvotes, r.aiVerified, r.aiConfidence FROM Report r WHERE r.id = :id")
+    List<Object[]> findVoteState(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Report r SET r.status = :status, r.verified = true WHERE r.id = :id AND r.status <> :status")
+    int markVerified(@Param("id") Long id, @Param("status") Report.Status status);
+    
+    @Modifying
+    @Query("UPDATE Report r SET r.aiVerified = :aiVerified, r.aiConfidence = :confidence, r.aiPrediction = :prediction WHERE r.id = :id")
+    int updateAiResult(@Param("id") Long id, @Param("aiVerified") Boolean aiVerified, @Param("confidence") Double confidence,
+                       @Param("prediction") String prediction);
+    
+    // Runs outside any service transaction (from the ML pool), hence its own
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.imageSha256 = :sha256, r.imagePhash = :phash WHERE r.id = :id")
+    int updateImageHashes(@Param("id") Long id, @Param("sha256") String sha256, @Param("phash") Long phash);
+    
+    // category, imageSha256, imagePhash, aiVerified, aiConfidence, aiPrediction of the newest reports with a
+    // usable AI result; warms the inference result cache
+    @Query("SELECT r.category, r.imageSha256, r.imagePhash, r.aiVerified, r.aiConfidence, r.aiPrediction FROM Report r " +
+           "WHERE r.imageSha256 IS NOT NULL AND r.aiPrediction IS NOT NULL AND r.aiPrediction <> 'Verification failed' " +
+           "ORDER BY r.id DESC")
+    List<Object[]> findCachedAiResults(Pageable pageable);
+    
+    // Runs on the image variant pool, outside any service transaction
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.imageVariantWidths = :widths WHERE r.id = :id AND r.imagePath = :imagePath")
+    int updateImageVariantWidths(@Param("id") Long id, @Param("imagePath") String imagePath, @Param("widths") String widths);
+    
+    // id, imagePath of reports whose image variants were never rendered
+    @Query("SELECT r.id, r.imagePath FROM Report r WHERE r.imagePath IS NOT NULL AND r.imageVariantWidths IS NULL ORDER BY r.id DESC")
+    List<Object[]> findMissingImageVariants();
+    
+    // Only while the report still points at the audio that was processed; runs on the audio pool
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.audioPath = :newPath, r.audioDurationMs = :durationMs WHERE r.id = :id AND r.audioPath = :oldPath")
+    int replaceAudio(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                     @Param("durationMs") Integer durationMs);
+    
+    // id, audioPath of uncompressed and WebM recordings the audio pipeline has not finished
+    @Query("SELECT r.id, r.audioPath FROM Report r WHERE r.audioDurationMs IS NULL AND " +
+           "(LOWER(r.audioPath) LIKE '%.wav' OR LOWER(r.audioPath) LIKE '%.aif' OR LOWER(r.audioPath) LIKE '%.aiff' OR LOWER(r.audioPath) LIKE '%.au' OR LOWER(r.audioPath) LIKE '%.webm') " +
+           "ORDER BY r.id DESC")
+    List<Object[]> findUnprocessedAudio();
 }
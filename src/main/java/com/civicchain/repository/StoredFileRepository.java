@@ -0,0 +1,38 @@
+package com.civicchain.repository;
+
+import com.civicchain.model.StoredFile;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Reference counts only change under the row lock (attach, release), so the two never interleave on
+// the same file. Rows with no references are placeholders from attaches that rolled back
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+    
+    boolean existsByPath(String path);
+    
+    // Held by attach and release until they commit, so changes to the same file queue up
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM StoredFile f WHERE f.path = :path")
+    Optional<StoredFile> findByPathForUpdate(@Param("path") String path);
+    
+    // Waits on the lock of a row an attach is about to reference, then sees its count
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredFile f WHERE f.refCount = 0 AND f.createdAt < :cutoff")
+    int deleteUnreferenced(@Param("cutoff") LocalDateTime cutoff);
+    
+    // files, references, bytes on disk
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.refCount), 0), COALESCE(SUM(f.size), 0) FROM StoredFile f WHERE f.refCount > 0")
+    List<Object[]> summarize();
+}
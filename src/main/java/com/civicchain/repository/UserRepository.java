@@ -2,9 +2,11 @@ package com.civicchain.repository;
 
 import com.civicchain.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +25,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u ORDER BY u.xp DESC")
     List<User> findTopUsersByXp();
     
+    // id, username, xp, level for every user; only read once to build the in-memory leaderboard
+    @Query("SELECT u.id, u.username, u.xp, u.level FROM User u")
+    List<Object[]> findLeaderboardRows();
+    
     @Query("SELECT u FROM User u WHERE u.role = 'ADMIN'")
     List<User> findAllAdmins();
+    
+    // Writes only the role, so an admin edit never carries a stale xp / level back over the ledger's
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.role = :role WHERE u.id = :id")
+    int updateRole(@Param("id") Long id, @Param("role") User.Role role);
 }
\ No newline at end of file
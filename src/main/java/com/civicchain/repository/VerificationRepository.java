@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,4 +37,14 @@ public interface VerificationRepository extends JpaRepository<Verification, Long
     List<Verification> findByReportId(Long reportId);
     
     List<Verification> findByUserId(Long userId);
+    
+    // One row per (reportId, vote) the user has cast among the given reports
+    @Query("SELECT v.report.id, v.vote FROM Verification v WHERE v.user.id = :userId AND v.report.id IN :reportIds")
+    List<Object[]> findVotesByUserForReports(@Param("userId") Long userId, @Param("reportIds") Collection<Long> reportIds);
+    
+    // Vote counters plus the user's own vote (null if none) for each of the given reports
+    @Query("SELECT r.id, r.upvotes, r.downvotes, v.vote FROM Report r " +
+           "LEFT JOIN Verification v ON v.report = r AND v.user.id = :userId " +
+           "WHERE r.id IN :reportIds")
+    List<Object[]> findVoteSummaries(@Param("userId") Long userId, @Param("reportIds") Collection<Long> reportIds);
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.civicchain.repository;
+
+import com.civicchain.model.XpEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface XpEventRepository extends JpaRepository<XpEvent, Long> {
+    
+    List<XpEvent> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+    
+    // Oldest unapplied events, row-locked until the caller commits; SKIP LOCKED (lock timeout -2) lets
+    // other instances take the next rows instead of waiting where the database supports it.
+    // Callers pass PageRequest.of(0, batchSize) as the limit.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM XpEvent e WHERE e.applied = false ORDER BY e.id")
+    List<XpEvent> findPendingForUpdate(Pageable pageable);
+    
+    // Claims exactly the rows that were read; fewer than ids.size() means another instance applied some first
+    @Modifying
+    @Query("UPDATE XpEvent e SET e.applied = true WHERE e.id IN :ids AND e.applied = false")
+    int claim(@Param("ids") Collection<Long> ids);
+    
+    // XP recorded for the user but not yet folded into users.xp
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM XpEvent e WHERE e.userId = :userId AND e.applied = false")
+    long sumPending(@Param("userId") Long userId);
+}
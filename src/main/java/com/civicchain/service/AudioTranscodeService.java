@@ -0,0 +1,710 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.StoredUpload;
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Shrinks voice notes after the report commits. Uncompressed recordings (WAV, AIFF, AU) are downmixed
+// to mono, resampled, peak-normalised and re-encoded as a small WAV; the result is stored like any
+// upload and swapped into Report.audioPath, releasing the original. Browser recordings that are
+// already compressed (WebM/Opus, Ogg, MP4/AAC, MP3) have no pure-Java codec and are kept as they
+// are; for those only the duration is read from the container (WebM, Ogg, MP4; not MP3).
+@Service
+public class AudioTranscodeService {
+
+    public enum Encoding { ULAW, PCM_16 }
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private UploadStorageService uploadStorage;
+
+    @Autowired
+    @Qualifier("audioTranscodeExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${civicchain.media.audio.enabled:true}")
+    private boolean enabled;
+
+    @Value("${civicchain.media.audio.sample-rate:16000}")
+    private int sampleRate;
+
+    @Value("${civicchain.media.audio.encoding:ULAW}")
+    private Encoding encoding;
+
+    @Value("${civicchain.media.audio.max-gain:4.0}")
+    private double maxGain;
+
+    private final AtomicLong transcoded = new AtomicLong();
+    private final AtomicLong measured = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    // Queues the report's audio once the surrounding transaction commits, or right away without one
+    public void schedule(Report report) {
+        if (!enabled || report.getAudioPath() == null) {
+            return;
+        }
+        Long reportId = report.getId();
+        String audioPath = report.getAudioPath();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(reportId, audioPath);
+                }
+            });
+        } else {
+            submit(reportId, audioPath);
+        }
+    }
+
+    // Uncompressed recordings, plus WebM ones stored before their duration could be read; other
+    // compressed formats would only be skipped again
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> pending = reportRepository.findUnprocessedAudio();
+        for (Object[] row : pending) {
+            submit((Long) row[0], (String) row[1]);
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("Queued audio transcoding for " + pending.size() + " reports");
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("encoding", encoding);
+        stats.put("queued", executor.getThreadPoolExecutor().getQueue().size());
+        stats.put("transcoded", transcoded.get());
+        stats.put("measured", measured.get());
+        stats.put("skipped", skipped.get());
+        stats.put("failed", failed.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        return stats;
+    }
+
+    private void submit(Long reportId, String audioPath) {
+        try {
+            executor.execute(() -> process(reportId, audioPath));
+        } catch (TaskRejectedException e) {
+            System.err.println("Audio transcode queue full, report " + reportId + " keeps its original audio");
+        }
+    }
+
+    private void process(Long reportId, String audioPath) {
+        Path original = uploadStorage.resolve(audioPath);
+        if (original == null || !Files.isRegularFile(original)) {
+            return;
+        }
+        try {
+            byte[] wav = transcode(original);
+            if (wav == null) {
+                Integer durationMs = containerDurationMs(original);
+                if (durationMs == null) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                reportRepository.replaceAudio(reportId, audioPath, audioPath, durationMs);
+                measured.incrementAndGet();
+                return;
+            }
+            int durationMs = durationMs(wav);
+
+            long originalSize = Files.size(original);
+            if (wav.length >= originalSize) {
+                // Already as small as it gets (e.g. our own output); keep the file, record the length
+                reportRepository.replaceAudio(reportId, audioPath, audioPath, durationMs);
+                measured.incrementAndGet();
+                return;
+            }
+
+            StoredUpload upload = uploadStorage.store(new ByteArrayInputStream(wav), "voice.wav", "audio");
+            String newPath = uploadStorage.attach(upload);
+            if (reportRepository.replaceAudio(reportId, audioPath, newPath, durationMs) > 0) {
+                uploadStorage.release(audioPath);
+                transcoded.incrementAndGet();
+                bytesIn.addAndGet(originalSize);
+                bytesOut.addAndGet(wav.length);
+            } else {
+                // Report deleted or its audio changed meanwhile
+                uploadStorage.release(newPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Audio transcoding failed for report " + reportId + ": " + e.getMessage());
+        }
+    }
+
+    // Mono, resampled, normalised WAV, or null when javax.sound cannot decode the file
+    private byte[] transcode(Path file) throws IOException {
+        AudioInputStream source;
+        try {
+            source = AudioSystem.getAudioInputStream(file.toFile());
+        } catch (UnsupportedAudioFileException e) {
+            return null;
+        }
+        try (AudioInputStream decoded = toPcm16(source)) {
+            if (decoded == null) {
+                return null;
+            }
+            AudioFormat format = decoded.getFormat();
+            int channels = format.getChannels();
+            int outputRate = Math.min(sampleRate, Math.round(format.getSampleRate()));
+            short[] samples = downmixAndResample(decoded, channels, format.getSampleRate(), outputRate);
+            normalize(samples);
+            return encodeWav(samples, outputRate);
+        }
+    }
+
+    private static AudioInputStream toPcm16(AudioInputStream source) throws IOException {
+        AudioFormat format = source.getFormat();
+        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+            format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        if (format.matches(target)) {
+            return source;
+        }
+        if (!AudioSystem.isConversionSupported(target, format)) {
+            source.close();
+            return null;
+        }
+        return AudioSystem.getAudioInputStream(target, source);
+    }
+
+    // Averages the channels, then every input sample falling into an output sample's period, which
+    // doubles as the anti-aliasing filter for the rate drop
+    private static short[] downmixAndResample(InputStream in, int channels, float inputRate, int outputRate) throws IOException {
+        double step = inputRate / outputRate;
+        short[] out = new short[outputRate * 60];
+        int count = 0;
+        double next = step;
+        long position = 0;
+        double sum = 0;
+        int n = 0;
+
+        int frameSize = channels * 2;
+        byte[] buffer = new byte[frameSize * 4096];
+        int carried = 0;
+        int read;
+        while ((read = in.read(buffer, carried, buffer.length - carried)) != -1) {
+            int available = carried + read;
+            int frames = available / frameSize;
+            ByteBuffer data = ByteBuffer.wrap(buffer, 0, frames * frameSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int f = 0; f < frames; f++) {
+                int mixed = 0;
+                for (int c = 0; c < channels; c++) {
+                    mixed += data.getShort();
+                }
+                sum += (double) mixed / channels;
+                n++;
+                position++;
+                if (position >= next) {
+                    if (count == out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+                    out[count++] = (short) Math.round(sum / n);
+                    sum = 0;
+                    n = 0;
+                    next += step;
+                }
+            }
+            carried = available - frames * frameSize;
+            System.arraycopy(buffer, frames * frameSize, buffer, 0, carried);
+        }
+        if (n > 0) {
+            if (count == out.length) {
+                out = Arrays.copyOf(out, count + 1);
+            }
+            out[count++] = (short) Math.round(sum / n);
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    // Brings the loudest sample to about -1 dBFS, never louder than maxGain, so quiet phone
+    // recordings are audible without turning background hiss into noise
+    private void normalize(short[] samples) {
+        int peak = 0;
+        for (short sample : samples) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        if (peak == 0) {
+            return;
+        }
+        double gain = Math.min(maxGain, 0.89 * Short.MAX_VALUE / peak);
+        if (gain <= 1.0) {
+            return;
+        }
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(samples[i] * gain)));
+        }
+    }
+
+    private byte[] encodeWav(short[] samples, int rate) {
+        boolean ulaw = encoding == Encoding.ULAW;
+        int dataSize = ulaw ? samples.length : samples.length * 2;
+        // Non-PCM formats carry cbSize in fmt and a fact chunk with the sample count
+        int fmtSize = ulaw ? 18 : 16;
+        int header = 12 + 8 + fmtSize + (ulaw ? 12 : 0) + 8;
+        ByteBuffer wav = ByteBuffer.allocate(header + dataSize + (dataSize & 1)).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(wav.capacity() - 8);
+        wav.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(fmtSize);
+        wav.putShort((short) (ulaw ? 7 : 1)).putShort((short) 1).putInt(rate);
+        wav.putInt(ulaw ? rate : rate * 2).putShort((short) (ulaw ? 1 : 2)).putShort((short) (ulaw ? 8 : 16));
+        if (ulaw) {
+            wav.putShort((short) 0);
+            wav.put("fact".getBytes(StandardCharsets.US_ASCII)).putInt(4).putInt(samples.length);
+        }
+        wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataSize);
+        for (short sample : samples) {
+            if (ulaw) {
+                wav.put(linearToUlaw(sample));
+            } else {
+                wav.putShort(sample);
+            }
+        }
+        return wav.array();
+    }
+
+    // G.711 mu-law
+    static byte linearToUlaw(int sample) {
+        int sign = sample < 0 ? 0x80 : 0;
+        int magnitude = Math.min(Math.abs(sample), 32635) + 0x84;
+        int exponent = 7;
+        for (int mask = 0x4000; (magnitude & mask) == 0 && exponent > 0; mask >>= 1) {
+            exponent--;
+        }
+        int mantissa = (magnitude >> (exponent + 3)) & 0x0F;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+
+    private static int durationMs(byte[] wav) throws IOException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(new ByteArrayInputStream(wav))) {
+            return (int) Math.round(in.getFrameLength() * 1000.0 / in.getFormat().getFrameRate());
+        } catch (UnsupportedAudioFileException e) {
+            throw new IllegalStateException("Could not read back transcoded audio", e);
+        }
+    }
+
+    // Duration of compressed recordings from their container headers, or null when it has none
+    static Integer containerDurationMs(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(64);
+            channel.read(head, 0);
+            byte[] bytes = head.array();
+            if (bytes[0] == 'O' && bytes[1] == 'g' && bytes[2] == 'g' && bytes[3] == 'S') {
+                return oggDurationMs(channel);
+            }
+            if (bytes[4] == 'f' && bytes[5] == 't' && bytes[6] == 'y' && bytes[7] == 'p') {
+                return mp4DurationMs(channel);
+            }
+            if ((bytes[0] & 0xFF) == 0x1A && (bytes[1] & 0xFF) == 0x45 && (bytes[2] & 0xFF) == 0xDF && (bytes[3] & 0xFF) == 0xA3) {
+                return webmDurationMs(channel);
+            }
+            return null;
+        }
+    }
+
+    private static final long EBML_SEGMENT = 0x18538067L;
+    private static final long EBML_INFO = 0x1549A966L;
+    private static final long EBML_TIMECODE_SCALE = 0x2AD7B1L;
+    private static final long EBML_DURATION = 0x4489L;
+    private static final long EBML_TRACKS = 0x1654AE6BL;
+    private static final long EBML_TRACK_ENTRY = 0xAEL;
+    private static final long EBML_CODEC_ID = 0x86L;
+    private static final long EBML_CLUSTER = 0x1F43B675L;
+    private static final long EBML_CLUSTER_TIMECODE = 0xE7L;
+    private static final long EBML_SIMPLE_BLOCK = 0xA3L;
+    private static final long EBML_BLOCK_GROUP = 0xA0L;
+    private static final long EBML_BLOCK = 0xA1L;
+    private static final long EBML_BLOCK_DURATION = 0x9BL;
+
+    // Info/Duration when the muxer wrote one. MediaRecorder streams the file out and never does, so
+    // otherwise the last Cluster's timecode plus its latest block, plus that block's own length read
+    // from the Opus TOC byte (blocks only carry start times)
+    private static Integer webmDurationMs(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, 64 * 1024));
+        channel.read(head, 0);
+        Ebml reader = new Ebml(head.array(), head.position());
+
+        // Skip the EBML header, then walk the Segment's children up to the first Cluster
+        reader.id();
+        reader.skip(reader.size());
+        if (reader.id() != EBML_SEGMENT) {
+            return null;
+        }
+        reader.size();
+        long timecodeScale = 1_000_000;
+        double duration = 0;
+        boolean opus = false;
+        while (reader.remaining() > 0) {
+            long id = reader.id();
+            long length = reader.size();
+            if (id == EBML_CLUSTER || length < 0 || length > reader.remaining()) {
+                break;
+            }
+            int end = reader.pos + (int) length;
+            if (id == EBML_INFO) {
+                while (reader.pos < end) {
+                    long child = reader.id();
+                    int childLength = (int) reader.size();
+                    if (child == EBML_TIMECODE_SCALE) {
+                        timecodeScale = reader.uint(childLength);
+                    } else if (child == EBML_DURATION) {
+                        duration = reader.floating(childLength);
+                    } else {
+                        reader.skip(childLength);
+                    }
+                }
+            } else if (id == EBML_TRACKS) {
+                // Voice notes carry a single audio track
+                while (reader.pos < end) {
+                    long child = reader.id();
+                    int childLength = (int) reader.size();
+                    if (child != EBML_TRACK_ENTRY) {
+                        reader.skip(childLength);
+                        continue;
+                    }
+                    int entryEnd = reader.pos + childLength;
+                    while (reader.pos < entryEnd) {
+                        long field = reader.id();
+                        int fieldLength = (int) reader.size();
+                        if (field == EBML_CODEC_ID) {
+                            opus = reader.string(fieldLength).equals("A_OPUS");
+                        } else {
+                            reader.skip(fieldLength);
+                        }
+                    }
+                }
+            }
+            reader.pos = end;
+        }
+        if (timecodeScale <= 0) {
+            return null;
+        }
+        if (duration > 0) {
+            return (int) Math.round(duration * timecodeScale / 1_000_000.0);
+        }
+
+        long cluster = findLastCluster(channel);
+        if (cluster < 0 || size - cluster > Integer.MAX_VALUE) {
+            return null;
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - cluster));
+        channel.read(tail, cluster);
+        reader = new Ebml(tail.array(), tail.position());
+        reader.id();
+        long clusterLength = reader.size();
+        int clusterEnd = clusterLength < 0 ? reader.limit : (int) Math.min(reader.limit, reader.pos + clusterLength);
+        if (reader.remaining() == 0 || reader.id() != EBML_CLUSTER_TIMECODE) {
+            return null;
+        }
+        long clusterTimecode = reader.uint((int) reader.size());
+
+        // Latest block start, and the length of that block in microseconds when it is Opus
+        long last = -1;
+        long lastLengthUs = 0;
+        while (reader.pos < clusterEnd) {
+            long id = reader.id();
+            long length = reader.size();
+            if (length < 0 || length > clusterEnd - reader.pos) {
+                break;
+            }
+            int end = reader.pos + (int) length;
+            if (id == EBML_SIMPLE_BLOCK || id == EBML_BLOCK_GROUP) {
+                long blockLengthUs = 0;
+                int block = reader.pos;
+                int blockEnd = end;
+                if (id == EBML_BLOCK_GROUP) {
+                    block = -1;
+                    while (reader.pos < end) {
+                        long child = reader.id();
+                        int childLength = (int) reader.size();
+                        if (child == EBML_BLOCK) {
+                            block = reader.pos;
+                            blockEnd = reader.pos + childLength;
+                            reader.skip(childLength);
+                        } else if (child == EBML_BLOCK_DURATION) {
+                            blockLengthUs = reader.uint(childLength) * timecodeScale / 1000;
+                        } else {
+                            reader.skip(childLength);
+                        }
+                    }
+                }
+                if (block >= 0) {
+                    reader.pos = block;
+                    reader.size(); // track number
+                    long blockTimecode = clusterTimecode + reader.int16();
+                    long flags = reader.uint(1);
+                    // Laced blocks hold several packets; only a single packet's TOC gives the length
+                    if (blockLengthUs == 0 && opus && (flags & 0x06) == 0 && reader.pos < blockEnd) {
+                        blockLengthUs = opusPacketUs(reader.data, reader.pos, blockEnd);
+                    }
+                    if (blockTimecode >= last) {
+                        last = blockTimecode;
+                        lastLengthUs = blockLengthUs;
+                    }
+                }
+            }
+            reader.pos = end;
+        }
+        if (last < 0) {
+            return null;
+        }
+        return (int) Math.round(last * timecodeScale / 1_000_000.0 + lastLengthUs / 1000.0);
+    }
+
+    // Offset of the last Cluster ID, searched backwards in overlapping windows; its first child must
+    // be the cluster Timecode, which rules out the ID bytes turning up inside audio data
+    private static long findLastCluster(FileChannel channel) throws IOException {
+        int window = 256 * 1024;
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(window + 16);
+        for (long end = size; end > 0; end -= window) {
+            long start = Math.max(0, end - window);
+            buffer.clear();
+            buffer.limit((int) (Math.min(size, end + 16) - start));
+            channel.read(buffer, start);
+            byte[] data = buffer.array();
+            for (int i = buffer.position() - 4; i >= 0; i--) {
+                if ((data[i] & 0xFF) == 0x1F && (data[i + 1] & 0xFF) == 0x43 && (data[i + 2] & 0xFF) == 0xB6
+                        && (data[i + 3] & 0xFF) == 0x75) {
+                    Ebml candidate = new Ebml(data, buffer.position());
+                    candidate.pos = i + 4;
+                    try {
+                        candidate.size();
+                        if (candidate.id() == EBML_CLUSTER_TIMECODE) {
+                            return start + i;
+                        }
+                    } catch (IllegalStateException e) {
+                        // Not an element header after all
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Frame count times frame size from the TOC byte (RFC 6716 section 3.1)
+    private static long opusPacketUs(byte[] data, int pos, int end) {
+        int toc = data[pos] & 0xFF;
+        int config = toc >> 3;
+        long frameUs;
+        if (config < 12) {
+            frameUs = new long[] {10_000, 20_000, 40_000, 60_000}[config % 4];
+        } else if (config < 16) {
+            frameUs = config % 2 == 0 ? 10_000 : 20_000;
+        } else {
+            frameUs = new long[] {2_500, 5_000, 10_000, 20_000}[config % 4];
+        }
+        int frames;
+        switch (toc & 0x03) {
+            case 0 -> frames = 1;
+            case 3 -> frames = pos + 1 < end ? data[pos + 1] & 0x3F : 0;
+            default -> frames = 2;
+        }
+        return frames * frameUs;
+    }
+
+    // Minimal EBML cursor over an in-memory slice: variable-length IDs and sizes, big-endian values
+    private static final class Ebml {
+        final byte[] data;
+        final int limit;
+        int pos;
+
+        Ebml(byte[] data, int limit) {
+            this.data = data;
+            this.limit = limit;
+        }
+
+        int remaining() {
+            return limit - pos;
+        }
+
+        // ID with its length marker kept, as the spec writes them
+        long id() {
+            int length = vintLength();
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (data[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        // Size with the marker stripped; -1 for the all-ones "unknown" size of streamed elements
+        long size() {
+            int length = vintLength();
+            long value = data[pos++] & (0xFF >> length);
+            boolean unknown = value == (0xFF >> length);
+            for (int i = 1; i < length; i++) {
+                int b = data[pos++] & 0xFF;
+                unknown &= b == 0xFF;
+                value = (value << 8) | b;
+            }
+            return unknown ? -1 : value;
+        }
+
+        long uint(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (data[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        int int16() {
+            return (short) uint(2);
+        }
+
+        double floating(int length) {
+            long bits = uint(length);
+            return length == 4 ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+        }
+
+        String string(int length) {
+            String value = new String(data, pos, length, StandardCharsets.US_ASCII);
+            pos += length;
+            return value.replace("\0", "");
+        }
+
+        void skip(long length) {
+            pos += (int) length;
+        }
+
+        private int vintLength() {
+            if (pos >= limit) {
+                throw new IllegalStateException("Truncated WebM element");
+            }
+            int length = Integer.numberOfLeadingZeros(data[pos] & 0xFF) - 23;
+            if (length < 1 || length > 8 || pos + length > limit) {
+                throw new IllegalStateException("Invalid WebM element header");
+            }
+            return length;
+        }
+    }
+
+    // Granule position of the last page over the stream's sample rate (always 48 kHz for Opus,
+    // less the pre-skip; from the identification header for Vorbis)
+    private static Integer oggDurationMs(FileChannel channel) throws IOException {
+        ByteBuffer first = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(first, 0);
+        byte[] page = first.array();
+        int payload = 27 + (page[26] & 0xFF);
+        long rate;
+        long preSkip = 0;
+        String codec = new String(page, payload, 8, StandardCharsets.ISO_8859_1);
+        if (codec.equals("OpusHead")) {
+            rate = 48000;
+            preSkip = first.getShort(payload + 10) & 0xFFFF;
+        } else if (codec.startsWith("\u0001vorbis")) {
+            rate = first.getInt(payload + 12) & 0xFFFFFFFFL;
+        } else {
+            return null;
+        }
+
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, 64 * 1024);
+        ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(tail, size - tailSize);
+        byte[] data = tail.array();
+        for (int i = tailSize - 27; i >= 0; i--) {
+            if (data[i] == 'O' && data[i + 1] == 'g' && data[i + 2] == 'g' && data[i + 3] == 'S') {
+                long granule = tail.getLong(i + 6);
+                if (granule > 0 && rate > 0) {
+                    return (int) Math.round(Math.max(0, granule - preSkip) * 1000.0 / rate);
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // moov/mvhd duration over its timescale; moov may sit at either end of the file
+    private static Integer mp4DurationMs(FileChannel channel) throws IOException {
+        long moov = findBox(channel, 0, channel.size(), "moov");
+        if (moov < 0) {
+            return null;
+        }
+        long moovSize = boxSize(channel, moov);
+        long mvhd = findBox(channel, moov + 8, moov + moovSize, "mvhd");
+        if (mvhd < 0) {
+            return null;
+        }
+        ByteBuffer box = ByteBuffer.allocate(40);
+        channel.read(box, mvhd + 8);
+        int version = box.get(0);
+        long timescale = version == 1 ? box.getInt(20) & 0xFFFFFFFFL : box.getInt(12) & 0xFFFFFFFFL;
+        long duration = version == 1 ? box.getLong(24) : box.getInt(16) & 0xFFFFFFFFL;
+        return timescale > 0 ? (int) Math.round(duration * 1000.0 / timescale) : null;
+    }
+
+    private static long findBox(FileChannel channel, long from, long to, String type) throws IOException {
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (position + 8 <= to) {
+            header.clear();
+            channel.read(header, position);
+            String name = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+            if (name.equals(type)) {
+                return position;
+            }
+            long size = boxSize(channel, position);
+            if (size < 8) {
+                return -1;
+            }
+            position += size;
+        }
+        return -1;
+    }
+
+    // 32-bit size, 64-bit largesize when it is 1, or to the end of the file when it is 0
+    private static long boxSize(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        channel.read(header, position);
+        long size = header.getInt(0) & 0xFFFFFFFFL;
+        if (size == 1) {
+            return header.getLong(8);
+        }
+        return size == 0 ? channel.size() - position : size;
+    }
+}
@@ -0,0 +1,105 @@
+package com.civicchain.service;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Java port of CIVIC_CATEGORIES, check_category_match and build_result from ml-service/main.py, so
+// in-process inference produces the same JSON the Python service returns. Keep the two in sync.
+public final class CivicCategoryMatcher {
+
+    // Insertion ordered like the Python dict
+    public static final Map<String, List<String>> CIVIC_CATEGORIES;
+
+    static {
+        Map<String, List<String>> categories = new LinkedHashMap<>();
+        categories.put("POTHOLE", List.of("pothole", "road", "asphalt", "street", "pavement", "crack"));
+        categories.put("GARBAGE", List.of("garbage", "trash", "waste", "litter", "bin", "refuse"));
+        categories.put("STREETLIGHT", List.of("streetlight", "lamp", "light", "pole", "illumination"));
+        categories.put("FLOOD", List.of("flood", "water", "puddle", "rain", "drainage"));
+        categories.put("TRAFFIC", List.of("traffic", "sign", "signal", "car", "vehicle", "road"));
+        categories.put("VANDALISM", List.of("graffiti", "damage", "broken", "vandalism"));
+        categories.put("OTHER", List.of("other", "miscellaneous", "general"));
+        CIVIC_CATEGORIES = Collections.unmodifiableMap(categories);
+    }
+
+    private CivicCategoryMatcher() {
+    }
+
+    // Same shape as the service's VerificationResult, from one image's class probabilities
+    public static ObjectNode buildResult(float[] probabilities, List<String> labels, String category) {
+        int[] top = topIndices(probabilities, 5);
+        String reported = category.toUpperCase();
+
+        boolean categoryMatch = false;
+        double matchConfidence = 0.0;
+        String bestMatch = "";
+        List<String> keywords = CIVIC_CATEGORIES.get(reported);
+        if (keywords != null) {
+            for (int index : top) {
+                String className = labels.get(index).toLowerCase();
+                for (String keyword : keywords) {
+                    if (className.contains(keyword)) {
+                        categoryMatch = true;
+                        if (probabilities[index] > matchConfidence) {
+                            matchConfidence = probabilities[index];
+                            bestMatch = labels.get(index);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        double overallConfidence = probabilities[top[0]];
+        if (categoryMatch && matchConfidence > 0.3) {
+            overallConfidence = matchConfidence;
+        }
+
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        result.put("ai_verified", categoryMatch && overallConfidence > 0.5);
+        result.put("confidence", round(overallConfidence));
+        result.put("prediction", categoryMatch ? bestMatch : labels.get(top[0]));
+        result.put("category_match", categoryMatch);
+        ObjectNode details = result.putObject("details");
+        details.put("reported_category", category);
+        ArrayNode topPredictions = details.putArray("top_predictions");
+        for (int i = 0; i < Math.min(3, top.length); i++) {
+            topPredictions.addObject()
+                .put("class", labels.get(top[i]))
+                .put("confidence", round(probabilities[top[i]]));
+        }
+        details.put("match_confidence", categoryMatch ? round(matchConfidence) : 0.0);
+        details.put("threshold_met", overallConfidence > 0.5);
+        return result;
+    }
+
+    // Indices of the k largest values, largest first
+    private static int[] topIndices(float[] values, int k) {
+        int count = Math.min(k, values.length);
+        int[] top = new int[count];
+        int filled = 0;
+        for (int i = 0; i < values.length; i++) {
+            int position = filled;
+            while (position > 0 && values[i] > values[top[position - 1]]) {
+                position--;
+            }
+            if (position >= count) {
+                continue;
+            }
+            System.arraycopy(top, position, top, position + 1, Math.min(filled, count - 1) - position);
+            top[position] = i;
+            filled = Math.min(filled + 1, count);
+        }
+        return top;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.civicchain.service;
+
+import com.civicchain.model.Report;
+import com.civicchain.model.Verification;
+import com.civicchain.repository.ReportRepository;
+import com.civicchain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Dashboard counters kept in memory: seeded from one GROUP BY, then adjusted by the write paths
+@Service
+public class DashboardStatsService {
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Report.Status, AtomicLong> byStatus = counters(Report.Status.class);
+    private final Map<Report.Severity, AtomicLong> bySeverity = counters(Report.Severity.class);
+    private final Map<Report.Category, AtomicLong> byCategory = counters(Report.Category.class);
+    private final Map<Long, AtomicLong> reportsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong totalReports = new AtomicLong();
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong upvotes = new AtomicLong();
+    private final AtomicLong downvotes = new AtomicLong();
+
+    // Reseeding periodically also corrects drift from writes that bypass the hooks (e.g. rolled back transactions)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${civicchain.stats.resync-interval-ms:600000}",
+               fixedDelayString = "${civicchain.stats.resync-interval-ms:600000}")
+    public synchronized void reseed() {
+        Map<Report.Status, Long> statusCounts = new EnumMap<>(Report.Status.class);
+        Map<Report.Severity, Long> severityCounts = new EnumMap<>(Report.Severity.class);
+        Map<Report.Category, Long> categoryCounts = new EnumMap<>(Report.Category.class);
+        Map<Long, Long> userCounts = new LinkedHashMap<>();
+        long total = 0;
+        long up = 0;
+        long down = 0;
+
+        for (Object[] row : reportRepository.countGroupedForStats()) {
+            long count = (Long) row[4];
+            total += count;
+            if (row[0] != null) statusCounts.merge((Report.Status) row[0], count, Long::sum);
+            if (row[1] != null) severityCounts.merge((Report.Severity) row[1], count, Long::sum);
+            if (row[2] != null) categoryCounts.merge((Report.Category) row[2], count, Long::sum);
+            if (row[3] != null) userCounts.merge((Long) row[3], count, Long::sum);
+            up += row[5] != null ? ((Number) row[5]).longValue() : 0;
+            down += row[6] != null ? ((Number) row[6]).longValue() : 0;
+        }
+
+        byStatus.forEach((status, counter) -> counter.set(statusCounts.getOrDefault(status, 0L)));
+        bySeverity.forEach((severity, counter) -> counter.set(severityCounts.getOrDefault(severity, 0L)));
+        byCategory.forEach((category, counter) -> counter.set(categoryCounts.getOrDefault(category, 0L)));
+        reportsByUser.clear();
+        userCounts.forEach((userId, count) -> reportsByUser.put(userId, new AtomicLong(count)));
+        totalReports.set(total);
+        upvotes.set(up);
+        downvotes.set(down);
+        totalUsers.set(userRepository.count());
+    }
+
+    public void reportCreated(Report report) {
+        totalReports.incrementAndGet();
+        adjust(byStatus, report.getStatus(), 1);
+        adjust(bySeverity, report.getSeverity(), 1);
+        adjust(byCategory, report.getCategory(), 1);
+        if (report.getReporter() != null) {
+            reportsByUser.computeIfAbsent(report.getReporter().getId(), id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public void reportDeleted(Report report) {
+        totalReports.decrementAndGet();
+        adjust(byStatus, report.getStatus(), -1);
+        adjust(bySeverity, report.getSeverity(), -1);
+        adjust(byCategory, report.getCategory(), -1);
+        upvotes.addAndGet(-report.getUpvotes());
+        downvotes.addAndGet(-report.getDownvotes());
+        if (report.getReporter() != null) {
+            AtomicLong counter = reportsByUser.get(report.getReporter().getId());
+            if (counter != null) counter.decrementAndGet();
+        }
+    }
+
+    public void statusChanged(Report.Status from, Report.Status to) {
+        if (from == to) {
+            return;
+        }
+        adjust(byStatus, from, -1);
+        adjust(byStatus, to, 1);
+    }
+
+    public void voteRecorded(Verification.VoteType vote) {
+        if (vote == Verification.VoteType.UPVOTE) {
+            upvotes.incrementAndGet();
+        } else {
+            downvotes.incrementAndGet();
+        }
+    }
+
+    public void userCreated() {
+        totalUsers.incrementAndGet();
+    }
+
+    public long getTotalReports() {
+        return totalReports.get();
+    }
+
+    public long getReportCount(Report.Status status) {
+        return byStatus.get(status).get();
+    }
+
+    public long getReportCount(Report.Severity severity) {
+        return bySeverity.get(severity).get();
+    }
+
+    public long getReportCount(Report.Category category) {
+        return byCategory.get(category).get();
+    }
+
+    public long getReportCountForUser(Long userId) {
+        AtomicLong counter = reportsByUser.get(userId);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public long getTotalUsers() {
+        return totalUsers.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalReports", totalReports.get());
+        stats.put("totalUsers", totalUsers.get());
+        stats.put("upvotes", upvotes.get());
+        stats.put("downvotes", downvotes.get());
+        stats.put("byStatus", values(byStatus));
+        stats.put("bySeverity", values(bySeverity));
+        stats.put("byCategory", values(byCategory));
+        return stats;
+    }
+
+    private static <E extends Enum<E>> Map<E, AtomicLong> counters(Class<E> type) {
+        Map<E, AtomicLong> counters = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            counters.put(value, new AtomicLong());
+        }
+        return counters;
+    }
+
+    private static <E extends Enum<E>> void adjust(Map<E, AtomicLong> counters, E key, long delta) {
+        if (key != null) {
+            counters.get(key).addAndGet(delta);
+        }
+    }
+
+    private static <E extends Enum<E>> Map<String, Long> values(Map<E, AtomicLong> counters) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        counters.forEach((key, counter) -> values.put(key.name(), counter.get()));
+        return values;
+    }
+}
@@ -0,0 +1,213 @@
+package com.civicchain.service;
+
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Grid over the locations of recent canonical reports (not themselves duplicates), used at ingest to
+// find an earlier report of the same category within the radius and time window. Cells are about one
+// radius tall, so a lookup only touches the cells around the new report.
+@Service
+public class DuplicateReportIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    // What createReport does with a duplicate: nothing, store it linked to the earlier report, or store nothing
+    public enum Mode {
+        OFF, FLAG, MERGE
+    }
+
+    private static final class Entry {
+        final long id;
+        final Report.Category category;
+        final double latitude;
+        final double longitude;
+        final long createdAt;
+        final Long reporterId;
+
+        Entry(long id, Report.Category category, double latitude, double longitude, long createdAt, Long reporterId) {
+            this.id = id;
+            this.category = category;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.createdAt = createdAt;
+            this.reporterId = reporterId;
+        }
+    }
+
+    // A possible canonical report for a new one
+    public static final class Candidate {
+        private final Long id;
+        private final Long reporterId;
+        private final double distanceMeters;
+
+        Candidate(Long id, Long reporterId, double distanceMeters) {
+            this.id = id;
+            this.reporterId = reporterId;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getReporterId() {
+            return reporterId;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Value("${civicchain.duplicates.radius-meters:50}")
+    private double radiusMeters;
+
+    @Value("${civicchain.duplicates.window-hours:72}")
+    private long windowHours;
+
+    private final Map<Long, List<Entry>> cells = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        cells.clear();
+        for (Object[] row : reportRepository.findDuplicateIndexRows(LocalDateTime.now().minusHours(windowHours))) {
+            add((Long) row[0], (Report.Category) row[1], (Double) row[2], (Double) row[3], (LocalDateTime) row[4], (Long) row[5]);
+        }
+    }
+
+    public void add(Report report) {
+        if (report.getLatitude() != null && report.getLongitude() != null && report.getDuplicateOfId() == null) {
+            add(report.getId(), report.getCategory(), report.getLatitude(), report.getLongitude(), report.getCreatedAt(),
+                report.getReporter() != null ? report.getReporter().getId() : null);
+        }
+    }
+
+    public void remove(Long reportId) {
+        for (List<Entry> cell : cells.values()) {
+            synchronized (cell) {
+                cell.removeIf(entry -> entry.id == reportId);
+            }
+        }
+    }
+
+    // Earlier reports of the same category within the radius and window, oldest first, so every
+    // duplicate of an incident folds into the report that was filed first
+    public List<Candidate> findCandidates(Report.Category category, Double latitude, Double longitude) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (latitude == null || longitude == null) {
+            return candidates;
+        }
+        long since = epochMillis(LocalDateTime.now().minusHours(windowHours));
+        double cellDegrees = cellDegrees();
+        long row = index(latitude, cellDegrees);
+        long col = index(longitude, cellDegrees);
+        // A degree of longitude shrinks towards the poles, so more columns are within the radius there
+        long colSpan = (long) Math.ceil(1 / Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+
+        List<Entry> matches = new ArrayList<>();
+        for (long r = row - 1; r <= row + 1; r++) {
+            for (long c = col - colSpan; c <= col + colSpan; c++) {
+                List<Entry> cell = cells.get(key(r, c));
+                if (cell == null) continue;
+                synchronized (cell) {
+                    for (Entry entry : cell) {
+                        if (entry.category == category && entry.createdAt >= since
+                                && distanceMeters(latitude, longitude, entry.latitude, entry.longitude) <= radiusMeters) {
+                            matches.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+        matches.sort(Comparator.comparingLong((Entry entry) -> entry.createdAt).thenComparingLong(entry -> entry.id));
+        for (Entry entry : matches) {
+            candidates.add(new Candidate(entry.id, entry.reporterId,
+                distanceMeters(latitude, longitude, entry.latitude, entry.longitude)));
+        }
+        return candidates;
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<Entry> cell : cells.values()) {
+            synchronized (cell) {
+                size += cell.size();
+            }
+        }
+        return size;
+    }
+
+    // Drops reports that have left the time window
+    @Scheduled(fixedDelay = 60_000)
+    public void prune() {
+        long since = epochMillis(LocalDateTime.now().minusHours(windowHours));
+        Iterator<Map.Entry<Long, List<Entry>>> iterator = cells.entrySet().iterator();
+        while (iterator.hasNext()) {
+            List<Entry> cell = iterator.next().getValue();
+            synchronized (cell) {
+                cell.removeIf(entry -> entry.createdAt < since);
+                if (cell.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void add(Long id, Report.Category category, double latitude, double longitude, LocalDateTime createdAt, Long reporterId) {
+        double cellDegrees = cellDegrees();
+        Entry entry = new Entry(id, category, latitude, longitude, epochMillis(createdAt), reporterId);
+        long key = key(index(latitude, cellDegrees), index(longitude, cellDegrees));
+        while (true) {
+            List<Entry> cell = cells.computeIfAbsent(key, k -> new ArrayList<>());
+            synchronized (cell) {
+                // prune() may have dropped the cell between the lookup and the lock
+                if (cells.get(key) == cell) {
+                    cell.add(entry);
+                    return;
+                }
+            }
+        }
+    }
+
+    private double cellDegrees() {
+        return radiusMeters / METERS_PER_DEGREE;
+    }
+
+    // Equirectangular approximation; plenty accurate at duplicate-detection radii
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long index(double degrees, double cellDegrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,138 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.ReportSummary;
+import com.civicchain.dto.VerificationSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${civicchain.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Rows are read through a forward-only cursor and written as they arrive, so memory stays flat
+    @Transactional(readOnly = true)
+    public void exportReports(Format format, OutputStream out) throws IOException {
+        try (Stream<ReportSummary> rows = entityManager
+                .createQuery(ReportSummary.SELECT + "ORDER BY r.id", ReportSummary.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            write(rows, ReportSummary.class, format, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportVerifications(Format format, OutputStream out) throws IOException {
+        try (Stream<VerificationSummary> rows = entityManager
+                .createQuery(VerificationSummary.SELECT + "ORDER BY v.id", VerificationSummary.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            write(rows, VerificationSummary.class, format, out);
+        }
+    }
+
+    private <T extends Record> void write(Stream<T> rows, Class<T> type, Format format, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(rows.iterator(), type, out);
+        } else {
+            writeNdjson(rows.iterator(), out);
+        }
+    }
+
+    private void writeNdjson(Iterator<?> rows, OutputStream out) throws IOException {
+        boolean empty = !rows.hasNext();
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+            }
+        }
+        // The separator only goes between rows; terminate the last line too
+        if (!empty) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private <T extends Record> void writeCsv(Iterator<T> rows, Class<T> type, OutputStream out) throws IOException {
+        RecordComponent[] columns = type.getRecordComponents();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns[i].getName());
+        }
+        writer.write('\n');
+
+        while (rows.hasNext()) {
+            T row = rows.next();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(read(columns[i], row)));
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private Object read(RecordComponent column, Record row) {
+        try {
+            return column.getAccessor().invoke(row);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot read export column " + column.getName(), e);
+        }
+    }
+
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Enum<?> ? ((Enum<?>) value).name() : value.toString();
+        // User-typed text starting like a formula would run when the file is opened in a spreadsheet;
+        // numbers (negative coordinates) are left alone
+        if (value instanceof String && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,247 @@
+package com.civicchain.service;
+
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Spatial grid over report locations. Each grid bucket keeps its points plus per severity/category
+// aggregates, so coarse map views are answered from the aggregates and only close zooms touch points.
+@Service
+public class HeatmapService {
+
+    // Output cells per 256px map tile along each axis
+    private static final int CELLS_PER_TILE = 8;
+
+    // Same intensities the browse map has always used per severity
+    private static final double[] SEVERITY_WEIGHTS = {0.2, 0.4, 0.7, 1.0};
+
+    private static final int SEVERITIES = Report.Severity.values().length;
+    private static final int CATEGORIES = Report.Category.values().length;
+
+    private static final class Point {
+        final long id;
+        final double latitude;
+        final double longitude;
+        final int severity;
+        final int category;
+
+        Point(long id, double latitude, double longitude, int severity, int category) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.severity = severity;
+            this.category = category;
+        }
+    }
+
+    private static final class Bucket {
+        final List<Point> points = new ArrayList<>();
+        final long[][] counts = new long[SEVERITIES][CATEGORIES];
+        final double[][] latitudeSums = new double[SEVERITIES][CATEGORIES];
+        final double[][] longitudeSums = new double[SEVERITIES][CATEGORIES];
+
+        synchronized void add(Point point) {
+            points.add(point);
+            counts[point.severity][point.category]++;
+            latitudeSums[point.severity][point.category] += point.latitude;
+            longitudeSums[point.severity][point.category] += point.longitude;
+        }
+
+        synchronized boolean remove(long reportId) {
+            for (int i = 0; i < points.size(); i++) {
+                Point point = points.get(i);
+                if (point.id == reportId) {
+                    points.remove(i);
+                    counts[point.severity][point.category]--;
+                    latitudeSums[point.severity][point.category] -= point.latitude;
+                    longitudeSums[point.severity][point.category] -= point.longitude;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static final class Cell {
+        private double latitudeSum;
+        private double longitudeSum;
+        private long count;
+        private double weight;
+
+        void add(double latitudeSum, double longitudeSum, long count, double weight) {
+            this.latitudeSum += latitudeSum;
+            this.longitudeSum += longitudeSum;
+            this.count += count;
+            this.weight += weight;
+        }
+
+        // Weighted centre of the reports in the cell rather than the geometric cell centre
+        public double getLatitude() {
+            return latitudeSum / count;
+        }
+
+        public double getLongitude() {
+            return longitudeSum / count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getWeight() {
+            return Math.round(weight * 1000) / 1000.0;
+        }
+    }
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Value("${civicchain.heatmap.index-cell-degrees:0.01}")
+    private double indexCellDegrees;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        buckets.clear();
+        for (Object[] row : reportRepository.findHeatmapPoints()) {
+            add((Long) row[0], (Double) row[1], (Double) row[2], (Report.Severity) row[3], (Report.Category) row[4]);
+        }
+    }
+
+    public void reportCreated(Report report) {
+        if (report.getLatitude() != null && report.getLongitude() != null) {
+            add(report.getId(), report.getLatitude(), report.getLongitude(), report.getSeverity(), report.getCategory());
+        }
+    }
+
+    public void reportDeleted(Report report) {
+        if (report.getLatitude() != null && report.getLongitude() != null) {
+            Bucket bucket = buckets.get(bucketKey(report.getLatitude(), report.getLongitude()));
+            if (bucket != null) {
+                bucket.remove(report.getId());
+            }
+        }
+    }
+
+    // Bins reports inside the bounding box into cells sized for the zoom level; null filters match everything
+    public List<Cell> getCells(double minLat, double minLng, double maxLat, double maxLng, int zoom,
+                               Report.Severity severity, Report.Category category) {
+        double cellDegrees = 360.0 / (1L << zoom) / CELLS_PER_TILE;
+        boolean useAggregates = cellDegrees >= indexCellDegrees;
+        Map<Long, Cell> cells = new HashMap<>();
+
+        for (Bucket bucket : bucketsInBox(minLat, minLng, maxLat, maxLng)) {
+            synchronized (bucket) {
+                if (useAggregates) {
+                    addAggregates(bucket, cells, cellDegrees, minLat, minLng, maxLat, maxLng, severity, category);
+                } else {
+                    addPoints(bucket, cells, cellDegrees, minLat, minLng, maxLat, maxLng, severity, category);
+                }
+            }
+        }
+        return new ArrayList<>(cells.values());
+    }
+
+    private void addAggregates(Bucket bucket, Map<Long, Cell> cells, double cellDegrees,
+                               double minLat, double minLng, double maxLat, double maxLng,
+                               Report.Severity severity, Report.Category category) {
+        for (int s = 0; s < SEVERITIES; s++) {
+            if (severity != null && severity.ordinal() != s) continue;
+            for (int c = 0; c < CATEGORIES; c++) {
+                if (category != null && category.ordinal() != c) continue;
+                long count = bucket.counts[s][c];
+                if (count == 0) continue;
+                double latitude = bucket.latitudeSums[s][c] / count;
+                double longitude = bucket.longitudeSums[s][c] / count;
+                // Buckets straddling the box edge are placed by their centroid
+                if (latitude < minLat || latitude > maxLat || longitude < minLng || longitude > maxLng) continue;
+                cells.computeIfAbsent(cellKey(latitude, longitude, cellDegrees), key -> new Cell())
+                    .add(bucket.latitudeSums[s][c], bucket.longitudeSums[s][c], count, count * SEVERITY_WEIGHTS[s]);
+            }
+        }
+    }
+
+    private void addPoints(Bucket bucket, Map<Long, Cell> cells, double cellDegrees,
+                           double minLat, double minLng, double maxLat, double maxLng,
+                           Report.Severity severity, Report.Category category) {
+        for (Point point : bucket.points) {
+            if (severity != null && severity.ordinal() != point.severity) continue;
+            if (category != null && category.ordinal() != point.category) continue;
+            if (point.latitude < minLat || point.latitude > maxLat || point.longitude < minLng || point.longitude > maxLng) continue;
+            cells.computeIfAbsent(cellKey(point.latitude, point.longitude, cellDegrees), key -> new Cell())
+                .add(point.latitude, point.longitude, 1, SEVERITY_WEIGHTS[point.severity]);
+        }
+    }
+
+    private List<Bucket> bucketsInBox(double minLat, double minLng, double maxLat, double maxLng) {
+        long fromRow = index(minLat, indexCellDegrees);
+        long toRow = index(maxLat, indexCellDegrees);
+        long fromCol = index(minLng, indexCellDegrees);
+        long toCol = index(maxLng, indexCellDegrees);
+        long span = saturatingSpan(toRow - fromRow + 1, toCol - fromCol + 1);
+
+        List<Bucket> found = new ArrayList<>();
+        if (span > buckets.size()) {
+            // Wide views cover more grid positions than there are occupied buckets; scan those instead
+            for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+                long row = entry.getKey() >> 32;
+                long col = (int) (long) entry.getKey();
+                if (row >= fromRow && row <= toRow && col >= fromCol && col <= toCol) {
+                    found.add(entry.getValue());
+                }
+            }
+            return found;
+        }
+        for (long row = fromRow; row <= toRow; row++) {
+            for (long col = fromCol; col <= toCol; col++) {
+                Bucket bucket = buckets.get(key(row, col));
+                if (bucket != null) {
+                    found.add(bucket);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static long saturatingSpan(long rows, long cols) {
+        try {
+            return Math.multiplyExact(rows, cols);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void add(Long id, double latitude, double longitude, Report.Severity severity, Report.Category category) {
+        Point point = new Point(id, latitude, longitude,
+            (severity != null ? severity : Report.Severity.MODERATE).ordinal(),
+            (category != null ? category : Report.Category.OTHER).ordinal());
+        buckets.computeIfAbsent(bucketKey(latitude, longitude), key -> new Bucket()).add(point);
+    }
+
+    private long bucketKey(double latitude, double longitude) {
+        return key(index(latitude, indexCellDegrees), index(longitude, indexCellDegrees));
+    }
+
+    private static long cellKey(double latitude, double longitude, double cellDegrees) {
+        return key(index(latitude, cellDegrees), index(longitude, cellDegrees));
+    }
+
+    private static long index(double degrees, double cellDegrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
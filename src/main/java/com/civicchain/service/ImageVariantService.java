@@ -0,0 +1,256 @@
+package com.civicchain.service;
+
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Renders a few fixed-width JPEG copies of each report photo next to the original
+// (images/ab/cd/<sha256>-480.jpg), so lists and map popups don't download full-size uploads.
+// Work runs on its own small pool after the report commits; reports without variants are picked
+// up again at startup. Identical photos share their variants through the content-addressed path.
+@Service
+public class ImageVariantService {
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private UploadStorageService uploadStorage;
+
+    @Autowired
+    @Qualifier("imageVariantExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${civicchain.media.variants.enabled:true}")
+    private boolean enabled;
+
+    @Value("${civicchain.media.variants.widths:160,480,960}")
+    private List<Integer> widths;
+
+    @Value("${civicchain.media.variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong undecodable = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    // Queues the report's image once the surrounding transaction commits, or right away without one
+    public void schedule(Report report) {
+        if (!enabled || report.getImagePath() == null) {
+            return;
+        }
+        Long reportId = report.getId();
+        String imagePath = report.getImagePath();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(reportId, imagePath);
+                }
+            });
+        } else {
+            submit(reportId, imagePath);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> missing = reportRepository.findMissingImageVariants();
+        for (Object[] row : missing) {
+            submit((Long) row[0], (String) row[1]);
+        }
+        if (!missing.isEmpty()) {
+            System.out.println("Queued image variants for " + missing.size() + " reports");
+        }
+    }
+
+    // Removes the variants of an image whose file was deleted
+    public void delete(String imagePath) {
+        if (imagePath == null) {
+            return;
+        }
+        for (int width : widths) {
+            Path file = uploadStorage.resolve(Report.imageVariantPath(imagePath, width));
+            try {
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not delete image variant " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("widths", widths);
+        stats.put("queued", executor.getThreadPoolExecutor().getQueue().size());
+        stats.put("rendered", rendered.get());
+        stats.put("reused", reused.get());
+        stats.put("undecodable", undecodable.get());
+        stats.put("failed", failed.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        return stats;
+    }
+
+    private void submit(Long reportId, String imagePath) {
+        try {
+            executor.execute(() -> generate(reportId, imagePath));
+        } catch (TaskRejectedException e) {
+            System.err.println("Image variant queue full, report " + reportId + " waits for the next startup");
+        }
+    }
+
+    private void generate(Long reportId, String imagePath) {
+        Path original = uploadStorage.resolve(imagePath);
+        if (original == null || !Files.isRegularFile(original)) {
+            return;
+        }
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                // HEIC and friends; recorded as done with no variants so clients keep the original
+                undecodable.incrementAndGet();
+                reportRepository.updateImageVariantWidths(reportId, imagePath, "");
+                return;
+            }
+            int orientation = MLImagePreprocessor.exifOrientation(original.toFile());
+            boolean swapped = orientation >= 5 && orientation <= 8;
+            int displayWidth = swapped ? source.getHeight() : source.getWidth();
+
+            List<String> done = new ArrayList<>();
+            // Widest first, each step scaled from the previous one
+            BufferedImage current = source;
+            for (int width : widths.stream().sorted((a, b) -> b - a).toList()) {
+                if (width >= displayWidth) {
+                    continue;
+                }
+                Path target = uploadStorage.resolve(Report.imageVariantPath(imagePath, width));
+                if (Files.exists(target)) {
+                    reused.incrementAndGet();
+                } else {
+                    double factor = (double) width / displayWidth;
+                    current = scale(current, Math.max(1, (int) Math.round(source.getWidth() * factor)),
+                        Math.max(1, (int) Math.round(source.getHeight() * factor)));
+                    write(orient(current, orientation), target);
+                    rendered.incrementAndGet();
+                }
+                done.add(0, Integer.toString(width));
+            }
+            bytesIn.addAndGet(Files.size(original));
+            if (reportRepository.updateImageVariantWidths(reportId, imagePath, String.join(",", done)) == 0
+                    && !Files.exists(original)) {
+                // Report and image were deleted while rendering
+                delete(imagePath);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Image variants failed for report " + reportId + ": " + e.getMessage());
+        }
+    }
+
+    // Halves with bilinear filtering until close to the target, then one last step
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, w, h, null);
+            graphics.dispose();
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    // Applies EXIF orientation 2-8; 5-8 swap width and height
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.translate(w, 0); transform.scale(-1, 1); }
+            case 3 -> { transform.translate(w, h); transform.quadrantRotate(2); }
+            case 4 -> { transform.translate(0, h); transform.scale(1, -1); }
+            case 5 -> { transform.quadrantRotate(1); transform.scale(1, -1); }
+            case 6 -> { transform.translate(h, 0); transform.quadrantRotate(1); }
+            case 7 -> { transform.translate(h, w); transform.quadrantRotate(3); transform.scale(1, -1); }
+            default -> { transform.translate(0, w); transform.quadrantRotate(3); }
+        }
+        boolean swapped = orientation >= 5;
+        BufferedImage oriented = new BufferedImage(swapped ? h : w, swapped ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        graphics.drawImage(image, transform, null);
+        graphics.dispose();
+        return oriented;
+    }
+
+    // Written beside the target and moved into place, so a half-written variant is never served
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path temp = target.resolveSibling("." + UUID.randomUUID() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        bytesOut.addAndGet(Files.size(target));
+    }
+}
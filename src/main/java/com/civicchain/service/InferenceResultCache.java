@@ -0,0 +1,203 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.MLVerificationResult;
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// AI results keyed by category + SHA-256 of the image, falling back to the nearest perceptual
+// (difference) hash match for re-encoded or resized copies. Bounded LRU in memory; the hashes and results live on the
+// reports themselves, and the newest max-entries of them are loaded back at startup.
+@Component
+public class InferenceResultCache {
+
+    private static final class Entry {
+        final Report.Category category;
+        final Long phash;
+        final MLVerificationResult result;
+
+        Entry(Report.Category category, Long phash, MLVerificationResult result) {
+            this.category = category;
+            this.phash = phash;
+            this.result = result;
+        }
+    }
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Value("${civicchain.ml.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${civicchain.ml.cache.perceptual-hash:true}")
+    private boolean perceptualHash;
+
+    // Out of 64 bits; 0 only matches visually identical downscales
+    @Value("${civicchain.ml.cache.max-hamming-distance:4}")
+    private int maxHammingDistance;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong perceptualHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Object[]> rows = reportRepository.findCachedAiResults(PageRequest.of(0, maxEntries));
+        synchronized (entries) {
+            entries.clear();
+            // Oldest first so the newest end up most recently used
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                Object[] row = rows.get(i);
+                MLVerificationResult result = new MLVerificationResult(Boolean.TRUE.equals(row[3]),
+                    row[4] != null ? (Double) row[4] : 0.0, (String) row[5]);
+                entries.put(key((Report.Category) row[0], (String) row[1]),
+                    new Entry((Report.Category) row[0], (Long) row[2], result));
+            }
+        }
+    }
+
+    // Fills in and persists the report's image hashes if missing, then returns a cached result or null.
+    // Reads the image, so call it from the ML pool rather than a request or scheduler thread. The
+    // perceptual hash is taken from the decoded (preprocessed) pixels, and skipped when there are none.
+    public MLVerificationResult lookup(Report report, File image, BufferedImage pixels) {
+        fingerprint(report, image, pixels);
+        synchronized (entries) {
+            Entry exact = entries.get(key(report.getCategory(), report.getImageSha256()));
+            if (exact != null) {
+                exactHits.incrementAndGet();
+                return exact.result;
+            }
+            if (report.getImagePhash() != null) {
+                String nearest = nearestPerceptualMatch(report.getCategory(), report.getImagePhash());
+                if (nearest != null) {
+                    perceptualHits.incrementAndGet();
+                    // get() rather than the scanned entry, so the match counts as recently used
+                    return entries.get(nearest).result;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Key of the closest entry within maxHammingDistance, or null; ties go to the most recently used.
+    // A linear scan under the lock: XOR + popcount over max-entries hashes takes microseconds, far
+    // less than the ML call a hit saves, so no BK-tree or multi-index structure is kept alongside
+    private String nearestPerceptualMatch(Report.Category category, long phash) {
+        String nearest = null;
+        int nearestDistance = maxHammingDistance + 1;
+        // Access order: least recently used first, hence <= for the tie-break
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.category != category || entry.phash == null) {
+                continue;
+            }
+            int distance = Long.bitCount(entry.phash ^ phash);
+            if (distance <= nearestDistance) {
+                nearest = candidate.getKey();
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    // Only for reports that went through lookup, which sets their hashes
+    public void put(Report report, MLVerificationResult result) {
+        if (report.getImageSha256() == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(report.getCategory(), report.getImageSha256()),
+                new Entry(report.getCategory(), report.getImagePhash(), result));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("exactHits", exactHits.get());
+        stats.put("perceptualHits", perceptualHits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private void fingerprint(Report report, File image, BufferedImage pixels) {
+        boolean changed = false;
+        if (report.getImageSha256() == null) {
+            report.setImageSha256(sha256(image));
+            changed = true;
+        }
+        if (perceptualHash && report.getImagePhash() == null && pixels != null) {
+            report.setImagePhash(differenceHash(pixels));
+            changed = true;
+        }
+        if (changed) {
+            reportRepository.updateImageHashes(report.getId(), report.getImageSha256(), report.getImagePhash());
+        }
+    }
+
+    private static String key(Report.Category category, String sha256) {
+        return category + ":" + sha256;
+    }
+
+    static String sha256(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash " + file.getPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // dHash: shrink to 9x8 greyscale and record whether each pixel is brighter than its right neighbour
+    static long differenceHash(BufferedImage source) {
+        BufferedImage small = new BufferedImage(9, 8, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        graphics.drawImage(source.getScaledInstance(9, 8, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+        graphics.dispose();
+
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,160 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.LeaderboardEntry;
+import com.civicchain.model.User;
+import com.civicchain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory XP ranking, updated whenever this instance saves a user's XP. Other instances fold their
+// share of the XP ledger into users without telling us, so the ranking is also rebuilt from users
+// on a schedule; between rebuilds it may lag their changes by up to refresh-interval-ms.
+@Service
+public class LeaderboardService {
+
+    private static final class Member {
+        final String username;
+        final int xp;
+        final int level;
+
+        Member(String username, int xp, int level) {
+            this.username = username;
+            this.xp = xp;
+            this.level = level;
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Replaced whole by load(); guarded by lock
+    private RankTree ranking = new RankTree();
+    private Map<Long, Member> members = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Object[]> rows = userRepository.findLeaderboardRows();
+        // Built aside and swapped in, so readers only wait for the swap
+        RankTree loadedRanking = new RankTree();
+        Map<Long, Member> loadedMembers = new HashMap<>();
+        for (Object[] row : rows) {
+            put(loadedRanking, loadedMembers, (Long) row[0], (String) row[1], (Integer) row[2], (Integer) row[3]);
+        }
+        lock.writeLock().lock();
+        try {
+            ranking = loadedRanking;
+            members = loadedMembers;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${civicchain.leaderboard.refresh-interval-ms:60000}",
+               fixedDelayString = "${civicchain.leaderboard.refresh-interval-ms:60000}")
+    public void refresh() {
+        load();
+    }
+
+    public void update(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(ranking, members, user.getId(), user.getUsername(), user.getXp(), user.getLevel());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Member previous = members.remove(userId);
+            if (previous != null) {
+                ranking.remove(userId, previous.xp);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<LeaderboardEntry> getTop(int count) {
+        lock.readLock().lock();
+        try {
+            return entries(1, Math.min(count, ranking.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<LeaderboardEntry> getEntry(Long userId) {
+        lock.readLock().lock();
+        try {
+            Member member = members.get(userId);
+            if (member == null) {
+                return Optional.empty();
+            }
+            int rank = ranking.rank(userId, member.xp);
+            return Optional.of(new LeaderboardEntry(rank, userId, member.username, member.xp, member.level));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The user plus up to `radius` neighbours on each side
+    public List<LeaderboardEntry> getAround(Long userId, int radius) {
+        lock.readLock().lock();
+        try {
+            Member member = members.get(userId);
+            if (member == null) {
+                return List.of();
+            }
+            int rank = ranking.rank(userId, member.xp);
+            return entries(Math.max(1, rank - radius), Math.min(ranking.size(), rank + radius));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void put(RankTree ranking, Map<Long, Member> members, Long userId, String username, Integer xp, Integer level) {
+        Member previous = members.get(userId);
+        if (previous != null) {
+            ranking.remove(userId, previous.xp);
+        }
+        Member member = new Member(username, xp != null ? xp : 0, level != null ? level : 1);
+        members.put(userId, member);
+        ranking.insert(userId, member.xp);
+    }
+
+    private List<LeaderboardEntry> entries(int fromRank, int toRank) {
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        for (int rank = fromRank; rank <= toRank; rank++) {
+            long userId = ranking.select(rank);
+            Member member = members.get(userId);
+            entries.add(new LeaderboardEntry(rank, userId, member.username, member.xp, member.level));
+        }
+        return entries;
+    }
+}
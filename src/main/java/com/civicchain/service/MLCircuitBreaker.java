@@ -0,0 +1,143 @@
+package com.civicchain.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Guards calls into the ML service. CLOSED lets everything through; failure-threshold consecutive
+// failures (or a failed health probe) open it, and while OPEN calls fail immediately. A successful
+// probe, or open-duration-ms passing, moves it to HALF_OPEN where a single trial call decides
+// between CLOSED and OPEN again. Health is probed in the background and cached for isHealthy().
+@Component
+public class MLCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Thrown (as the failure of the call's future) instead of calling the ML service while open
+    public static class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException() {
+            super("ML service circuit breaker is open");
+        }
+    }
+
+    @Autowired
+    private MLClient mlClient;
+
+    @Value("${civicchain.ml.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${civicchain.ml.breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private boolean trialInFlight;
+    private long openedAt;
+    private LocalDateTime lastTransitionAt;
+    private final Map<State, Long> transitionsInto = new EnumMap<>(State.class);
+    private long fastFailed;
+
+    private volatile boolean healthy = true;
+    private volatile LocalDateTime lastProbeAt;
+
+    @Scheduled(fixedDelayString = "${civicchain.ml.breaker.probe-interval-ms:5000}")
+    public void probe() {
+        boolean up = mlClient.isHealthy();
+        healthy = up;
+        lastProbeAt = LocalDateTime.now();
+        synchronized (this) {
+            if (up && state == State.OPEN) {
+                transition(State.HALF_OPEN);
+            } else if (!up && state != State.OPEN) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    // Whether a call may go out now; in HALF_OPEN only one trial call is let through at a time
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        fastFailed++;
+        return false;
+    }
+
+    // Cheap check for callers deciding whether to start work at all
+    public synchronized boolean isCallPermitted() {
+        return state == State.CLOSED
+            || (state == State.HALF_OPEN && !trialInFlight)
+            || (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs);
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            transition(State.OPEN);
+        }
+    }
+
+    // Result of the last background probe; never calls the ML service itself
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("state", state);
+        snapshot.put("healthy", healthy);
+        snapshot.put("lastProbeAt", lastProbeAt);
+        snapshot.put("consecutiveFailures", consecutiveFailures);
+        snapshot.put("fastFailed", fastFailed);
+        snapshot.put("lastTransitionAt", lastTransitionAt);
+        Map<State, Long> transitions = new EnumMap<>(State.class);
+        for (State target : State.values()) {
+            transitions.put(target, transitionsInto.getOrDefault(target, 0L));
+        }
+        snapshot.put("transitionsInto", transitions);
+        return snapshot;
+    }
+
+    private void transition(State next) {
+        System.out.println("ML service circuit breaker " + state + " -> " + next);
+        state = next;
+        lastTransitionAt = LocalDateTime.now();
+        transitionsInto.merge(next, 1L, Long::sum);
+        trialInFlight = false;
+        if (next == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (next == State.CLOSED) {
+            consecutiveFailures = 0;
+        }
+    }
+}
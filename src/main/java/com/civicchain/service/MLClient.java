@@ -0,0 +1,20 @@
+package com.civicchain.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// HTTP transport to the ML service, chosen with civicchain.ml.client. Blocking implementations
+// complete the future on the calling thread; reactive ones complete it later from their I/O threads.
+public interface MLClient {
+
+    // JSON body of POST /verify
+    CompletableFuture<JsonNode> verify(Resource image, String category);
+
+    // JSON body of POST /verify_batch; fails with UnsupportedOperationException when the service has no such endpoint
+    CompletableFuture<JsonNode> verifyBatch(List<Resource> images, List<String> categories);
+
+    boolean isHealthy();
+}
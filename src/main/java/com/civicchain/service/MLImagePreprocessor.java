@@ -0,0 +1,219 @@
+package com.civicchain.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turns an upload into what the model actually consumes: decoded once, upright per its EXIF
+// orientation and scaled to the model input size, sent as a small JPEG instead of the original file.
+@Component
+public class MLImagePreprocessor {
+
+    // The image to upload plus its decoded pixels, which are null when the original is sent as is
+    public static final class PreparedImage {
+        private final Resource upload;
+        private final BufferedImage pixels;
+
+        PreparedImage(Resource upload, BufferedImage pixels) {
+            this.upload = upload;
+            this.pixels = pixels;
+        }
+
+        public Resource getUpload() {
+            return upload;
+        }
+
+        public BufferedImage getPixels() {
+            return pixels;
+        }
+    }
+
+    @Value("${civicchain.ml.preprocess.enabled:true}")
+    private boolean enabled;
+
+    // MobileNetV2 input size; the ML service resizes to it anyway
+    @Value("${civicchain.ml.preprocess.size:224}")
+    private int size;
+
+    @Value("${civicchain.ml.preprocess.jpeg-quality:0.9}")
+    private float jpegQuality;
+
+    private final AtomicLong prepared = new AtomicLong();
+    private final AtomicLong passedThrough = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    // Falls back to the original file when preprocessing is off or ImageIO cannot decode it
+    public PreparedImage prepare(File image) {
+        if (!enabled) {
+            passedThrough.incrementAndGet();
+            return new PreparedImage(new FileSystemResource(image), null);
+        }
+        BufferedImage source;
+        try {
+            source = ImageIO.read(image);
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            passedThrough.incrementAndGet();
+            return new PreparedImage(new FileSystemResource(image), null);
+        }
+
+        BufferedImage pixels = orient(scale(source, size), exifOrientation(image));
+        byte[] jpeg = encodeJpeg(pixels);
+        prepared.incrementAndGet();
+        bytesIn.addAndGet(image.length());
+        bytesOut.addAndGet(jpeg.length);
+
+        String filename = image.getName().replaceFirst("\\.[^.]*$", "") + ".jpg";
+        Resource upload = new ByteArrayResource(jpeg) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+        return new PreparedImage(upload, pixels);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size);
+        stats.put("prepared", prepared.get());
+        stats.put("passedThrough", passedThrough.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        return stats;
+    }
+
+    // Halves with bilinear filtering until close to the target, then one last step, which keeps
+    // large photos from aliasing the way a single bilinear step would
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = width / 2 >= size ? width / 2 : size;
+            height = height / 2 >= size ? height / 2 : size;
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != size || height != size);
+        return current;
+    }
+
+    // Applies EXIF orientation 2-8 to a square image
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int n = image.getWidth() - 1;
+        BufferedImage oriented = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y <= n; y++) {
+            for (int x = 0; x <= n; x++) {
+                int rgb = image.getRGB(x, y);
+                switch (orientation) {
+                    case 2 -> oriented.setRGB(n - x, y, rgb);
+                    case 3 -> oriented.setRGB(n - x, n - y, rgb);
+                    case 4 -> oriented.setRGB(x, n - y, rgb);
+                    case 5 -> oriented.setRGB(y, x, rgb);
+                    case 6 -> oriented.setRGB(n - y, x, rgb);
+                    case 7 -> oriented.setRGB(n - y, n - x, rgb);
+                    default -> oriented.setRGB(y, n - x, rgb);
+                }
+            }
+        }
+        return oriented;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode image: " + e.getMessage(), e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Orientation tag from the EXIF block of a JPEG, or 1 (upright) when there is none
+    static int exifOrientation(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // Metadata segments all come before the scan data
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return 1;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (marker != 0xFFE1) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] segment = new byte[length];
+                in.readFully(segment);
+                int orientation = exifOrientation(segment);
+                if (orientation > 0) {
+                    return orientation;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+    }
+
+    // Reads tag 0x0112 from IFD0 of an APP1 segment; 0 when the segment is not EXIF (e.g. XMP)
+    private static int exifOrientation(byte[] segment) {
+        if (segment.length < 14 || !new String(segment, 0, 4, StandardCharsets.US_ASCII).equals("Exif")) {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return 0;
+    }
+}
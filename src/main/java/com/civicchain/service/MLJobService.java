@@ -0,0 +1,180 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.MLVerificationResult;
+import com.civicchain.model.MLJob;
+import com.civicchain.model.Report;
+import com.civicchain.repository.MLJobRepository;
+import com.civicchain.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains the ml_jobs outbox: claims due jobs under a lease, runs them through MLService and records
+// the outcome. Failed attempts are retried with exponential backoff until max-attempts, then dead-lettered.
+// A crash mid-job just lets the lease run out, after which any instance picks the job up again.
+// Every claim writes its own lease token as owner, so the outcome of a run whose lease ran out can
+// never overwrite that of the claim that took the job over, even on the same instance.
+@Service
+public class MLJobService {
+
+    // Identifies this process in lease tokens; a restarted process waits out its predecessor's leases
+    private final String workerId = UUID.randomUUID().toString();
+    private final AtomicLong claims = new AtomicLong();
+
+    @Autowired
+    private MLJobRepository jobRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private MLService mlService;
+    
+    @Autowired
+    private MLCircuitBreaker circuitBreaker;
+
+    @Value("${civicchain.ml.jobs.claim-batch-size:32}")
+    private int claimBatchSize;
+
+    @Value("${civicchain.ml.jobs.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${civicchain.ml.jobs.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${civicchain.ml.jobs.base-backoff-ms:5000}")
+    private long baseBackoffMs;
+
+    @Value("${civicchain.ml.jobs.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Scheduled(fixedDelayString = "${civicchain.ml.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        // Jobs stay queued while the ML service is known to be down; a half-open breaker gets one trial job
+        if (!circuitBreaker.isCallPermitted()) {
+            return;
+        }
+        int limit = circuitBreaker.getState() == MLCircuitBreaker.State.CLOSED ? claimBatchSize : 1;
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (Object[] row : jobRepository.findDue(now, PageRequest.of(0, limit))) {
+            Long jobId = (Long) row[0];
+            Long reportId = (Long) row[1];
+            int attempt = (Integer) row[2] + 1;
+            String lease = workerId + "#" + claims.incrementAndGet();
+
+            // Another worker got there first
+            if (jobRepository.claim(jobId, lease, now.plus(Duration.ofMillis(leaseMs)), now) == 0) {
+                continue;
+            }
+
+            Report report = reportRepository.findById(reportId).orElse(null);
+            if (report == null) {
+                // Report deleted since; nothing left to verify
+                jobRepository.complete(jobId, lease, LocalDateTime.now());
+                continue;
+            }
+
+            try {
+                mlService.verifyReportAsync(report, () -> holdLease(jobId, lease))
+                    .whenComplete((result, error) -> finish(jobId, lease, reportId, attempt, result, error));
+            } catch (RejectedExecutionException e) {
+                // Local pool is full: hand the job back and stop claiming until the next poll
+                jobRepository.release(jobId, lease, LocalDateTime.now(), LocalDateTime.now());
+                return;
+            }
+        }
+    }
+
+    // Renews the claim's lease in full, or returns false once another claim has taken the job over.
+    // Called as the job starts on the pool thread, since the claim's lease may have been spent waiting
+    // in the local queue, and again before a result is applied.
+    private boolean holdLease(Long jobId, String lease) {
+        LocalDateTime now = LocalDateTime.now();
+        return jobRepository.renewLease(jobId, lease, now.plus(Duration.ofMillis(leaseMs)), now) > 0;
+    }
+
+    private void finish(Long jobId, String lease, Long reportId, int attempt, MLVerificationResult result, Throwable error) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // Lease lost before the job started; the job belongs to its new claim
+                return;
+            }
+            if (error == null) {
+                // Only the current lease holder applies its result
+                if (holdLease(jobId, lease)) {
+                    reportService.applyAiResult(reportId, result);
+                    jobRepository.complete(jobId, lease, now);
+                }
+                return;
+            }
+
+            if (cause instanceof RejectedExecutionException || cause instanceof MLCircuitBreaker.OpenException) {
+                // Not the job's fault: put it back without spending an attempt
+                jobRepository.release(jobId, lease, now, now);
+            } else if (cause instanceof IllegalStateException || attempt >= maxAttempts) {
+                System.err.println("ML verification for report " + reportId + " dead-lettered after " + attempt +
+                    " attempt(s): " + cause.getMessage());
+                if (jobRepository.deadLetter(jobId, lease, truncate(cause.getMessage()), now) > 0) {
+                    reportService.recordAiVerificationFailure(reportId);
+                }
+            } else {
+                jobRepository.retry(jobId, lease, now.plus(Duration.ofMillis(backoffMs(attempt))),
+                    truncate(cause.getMessage()), now);
+            }
+        } catch (Exception e) {
+            // The lease runs out and the job is picked up again
+            System.err.println("Could not record ML job " + jobId + " outcome: " + e.getMessage());
+        }
+    }
+
+    // base * 2^(attempt-1), capped
+    private long backoffMs(int attempt) {
+        return Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 30));
+    }
+
+    public Map<MLJob.Status, Long> getJobCounts() {
+        Map<MLJob.Status, Long> counts = new EnumMap<>(MLJob.Status.class);
+        for (MLJob.Status status : MLJob.Status.values()) {
+            counts.put(status, 0L);
+        }
+        for (Object[] row : jobRepository.countByStatus()) {
+            counts.put((MLJob.Status) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    public List<MLJob> getJobs(MLJob.Status status, int limit) {
+        return jobRepository.findByStatusOrderByUpdatedAtDesc(status, PageRequest.of(0, limit));
+    }
+
+    // Gives a dead-lettered job a fresh set of attempts
+    public boolean requeue(Long jobId) {
+        return jobRepository.requeue(jobId, LocalDateTime.now()) > 0;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -1,109 +1,260 @@
 package com.civicchain.service;
 
+import com.civicchain.config.MLVerificationExecutor;
+import com.civicchain.dto.MLVerificationResult;
 import com.civicchain.model.Report;
-import com.civicchain.repository.ReportRepository;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
+// Verification calls to the ML service through the configured MLClient; MLJobService decides what
+// happens with the results.
 @Service
 public class MLService {
     
+    // A report waiting in the batcher together with its prepared image and the future its job is waiting on
+    private static final class PendingVerification {
+        final Report report;
+        final Resource image;
+        final CompletableFuture<MLVerificationResult> result = new CompletableFuture<>();
+        
+        PendingVerification(Report report, Resource image) {
+            this.report = report;
+            this.image = image;
+        }
+    }
+    
     @Autowired
-    private ReportRepository reportRepository;
+    private MLVerificationExecutor mlVerificationExecutor;
     
-    @Value("${ml.service.url:http://localhost:8000}")
-    private String mlServiceUrl;
+    @Autowired
+    private MLClient mlClient;
     
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private MLCircuitBreaker circuitBreaker;
     
-    @Async
-    public CompletableFuture<Void> verifyReportAsync(Report report) {
-        try {
-            verifyReport(report);
-        } catch (Exception e) {
-            System.err.println("Async ML verification failed for report " + report.getId() + ": " + e.getMessage());
+    @Autowired
+    private InferenceResultCache resultCache;
+    
+    @Autowired
+    private MLImagePreprocessor imagePreprocessor;
+    
+    // A max size of 1 turns batching off and sends one /verify request per report
+    @Value("${civicchain.ml.batch.max-size:8}")
+    private int batchMaxSize;
+    
+    @Value("${civicchain.ml.batch.max-wait-ms:50}")
+    private long batchMaxWaitMs;
+    
+    @Value("${civicchain.ml.batch.max-pending:500}")
+    private int batchMaxPending;
+    
+    private MicroBatcher<PendingVerification> batcher;
+    
+    @PostConstruct
+    void startBatcher() {
+        if (batchMaxSize > 1) {
+            batcher = new MicroBatcher<>("ml-verify", batchMaxSize, batchMaxWaitMs, batchMaxPending,
+                mlVerificationExecutor, this::verifyBatch,
+                (batch, e) -> batch.forEach(pending -> pending.result.completeExceptionally(e)));
+            batcher.start();
         }
-        return CompletableFuture.completedFuture(null);
     }
     
-    public void verifyReport(Report report) {
-        if (report.getImagePath() == null) {
-            return;
+    @PreDestroy
+    void stopBatcher() {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+    
+    // Runs the report through the ML verification pool, on its own or as part of the next batch.
+    // Throws RejectedExecutionException when the pool or the batch queue is full; the future fails
+    // when the ML service could not produce a result.
+    public CompletableFuture<MLVerificationResult> verifyReportAsync(Report report) {
+        return verifyReportAsync(report, () -> true);
+    }
+    
+    // As above, but asks onStart once a pool thread picks the report up, which may be long after
+    // submission; when it says no the work is skipped and the future fails with a CancellationException
+    public CompletableFuture<MLVerificationResult> verifyReportAsync(Report report, BooleanSupplier onStart) {
+        // Decoding and hashing read the image, so they run on the pool along with the call itself
+        return mlVerificationExecutor.track(CompletableFuture.supplyAsync(() -> {
+                if (!onStart.getAsBoolean()) {
+                    throw new CancellationException("Verification of report " + report.getId() + " no longer wanted");
+                }
+                return verifyOnPool(report);
+            }, mlVerificationExecutor)
+            .thenCompose(result -> result));
+    }
+    
+    private CompletableFuture<MLVerificationResult> verifyOnPool(Report report) {
+        File file = imageFile(report);
+        MLImagePreprocessor.PreparedImage image = imagePreprocessor.prepare(file);
+        MLVerificationResult cached = resultCache.lookup(report, file, image.getPixels());
+        if (cached != null) {
+            System.out.println("AI verification for report " + report.getId() + " served from cache");
+            return CompletableFuture.completedFuture(cached);
         }
         
-        try {
-            // Prepare the request
-            String url = mlServiceUrl + "/verify";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            
-            // Add image file
-            File imageFile = new File("uploads/" + report.getImagePath());
-            if (imageFile.exists()) {
-                body.add("image_file", new FileSystemResource(imageFile));
-                body.add("category", report.getCategory().name());
-                
-                HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-                
-                // Make the request
-                ResponseEntity<String> response = restTemplate.postForEntity(url, requestEntity, String.class);
-                
-                if (response.getStatusCode() == HttpStatus.OK) {
-                    // Parse response
-                    JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                    
-                    // Update report with AI results
-                    report.setAiVerified(jsonResponse.get("ai_verified").asBoolean());
-                    report.setAiConfidence(jsonResponse.get("confidence").asDouble());
-                    report.setAiPrediction(jsonResponse.get("prediction").asText());
-                    
-                    // Auto-verify if AI confidence is high
-                    if (report.getAiVerified() && report.getAiConfidence() > 0.8) {
-                        report.setStatus(Report.Status.VERIFIED);
-                        report.setVerified(true);
+        CompletableFuture<MLVerificationResult> result;
+        if (batcher != null) {
+            PendingVerification pending = new PendingVerification(report, image.getUpload());
+            batcher.submit(pending);
+            result = pending.result;
+        } else {
+            result = verifySingle(report, image.getUpload());
+        }
+        return result.thenApply(verified -> {
+            resultCache.put(report, verified);
+            return verified;
+        });
+    }
+    
+    private CompletableFuture<MLVerificationResult> verifySingle(Report report, Resource image) {
+        return guarded(() -> mlClient.verify(image, report.getCategory().name())).thenApply(json -> {
+            MLVerificationResult result = MLVerificationResult.fromJson(json);
+            System.out.println("AI verification completed for report " + report.getId() + 
+                " - Verified: " + result.isAiVerified() + 
+                ", Confidence: " + result.getConfidence());
+            return result;
+        });
+    }
+    
+    // One /verify_batch call for the whole batch, so the model runs a single batched prediction
+    private void verifyBatch(List<PendingVerification> batch) {
+        List<Resource> images = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        for (PendingVerification pending : batch) {
+            images.add(pending.image);
+            categories.add(pending.report.getCategory().name());
+        }
+        
+        guarded(() -> mlClient.verifyBatch(images, categories)).whenComplete((response, error) -> {
+            if (error == null) {
+                JsonNode results = response.path("results");
+                for (int i = 0; i < batch.size(); i++) {
+                    JsonNode result = results.get(i);
+                    if (result == null || result.isNull() || result.has("error")) {
+                        String detail = result != null && result.has("error") ? result.get("error").asText() : "no result";
+                        batch.get(i).result.completeExceptionally(new RuntimeException("ML service could not verify image: " + detail));
+                    } else {
+                        batch.get(i).result.complete(MLVerificationResult.fromJson(result));
                     }
-                    
-                    reportRepository.save(report);
-                    System.out.println("AI verification completed for report " + report.getId() + 
-                        " - Verified: " + report.getAiVerified() + 
-                        ", Confidence: " + report.getAiConfidence());
                 }
+                System.out.println("AI verification completed for a batch of " + batch.size() + " reports");
+            } else if (unwrap(error) instanceof UnsupportedOperationException) {
+                // ML service predates /verify_batch; fall back to one request per image
+                for (PendingVerification pending : batch) {
+                    verifySingle(pending.report, pending.image).whenComplete((result, failure) -> {
+                        if (failure == null) {
+                            pending.result.complete(result);
+                        } else {
+                            pending.result.completeExceptionally(unwrap(failure));
+                        }
+                    });
+                }
+            } else if (unwrap(error) instanceof MLCircuitBreaker.OpenException) {
+                batch.forEach(pending -> pending.result.completeExceptionally(unwrap(error)));
             } else {
-                System.err.println("Image file not found: " + imageFile.getPath());
+                RuntimeException failure = new RuntimeException("ML service batch verification failed: " + unwrap(error).getMessage(), error);
+                batch.forEach(pending -> pending.result.completeExceptionally(failure));
             }
-            
-        } catch (Exception e) {
-            System.err.println("ML service verification failed: " + e.getMessage());
-            // Set default values on failure
-            report.setAiVerified(false);
-            report.setAiConfidence(0.0);
-            report.setAiPrediction("Verification failed");
-            reportRepository.save(report);
-        }
+        });
     }
     
-    public boolean isMLServiceHealthy() {
+    // Sends the request only if the circuit breaker allows it and reports the outcome back to it
+    private CompletableFuture<JsonNode> guarded(Supplier<CompletableFuture<JsonNode>> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new MLCircuitBreaker.OpenException());
+        }
+        CompletableFuture<JsonNode> response;
         try {
-            String url = mlServiceUrl + "/health";
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            return response.getStatusCode() == HttpStatus.OK;
-        } catch (Exception e) {
+            response = request.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((json, error) -> {
+            if (error == null || !isServiceFault(unwrap(error))) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
+        });
+    }
+    
+    // A missing endpoint or a rejected request still means the service is up and answering
+    private static boolean isServiceFault(Throwable error) {
+        // Missing or undecodable images say nothing about the service
+        if (error instanceof UnsupportedOperationException || error instanceof IllegalStateException) {
             return false;
         }
+        if (error instanceof RestClientResponseException response) {
+            return !response.getStatusCode().is4xxClientError();
+        }
+        if (error instanceof WebClientResponseException response) {
+            return !response.getStatusCode().is4xxClientError();
+        }
+        return true;
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    // IllegalStateException marks failures a retry cannot fix
+    private File imageFile(Report report) {
+        if (report.getImagePath() == null) {
+            throw new IllegalStateException("Report " + report.getId() + " has no image");
+        }
+        File imageFile = new File("uploads/" + report.getImagePath());
+        if (!imageFile.exists()) {
+            throw new IllegalStateException("Image file not found: " + imageFile.getPath());
+        }
+        return imageFile;
+    }
+    
+    public Map<String, Object> getPreprocessStats() {
+        return imagePreprocessor.getStats();
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        return resultCache.getStats();
+    }
+    
+    public Map<String, Object> getBatchStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", batcher != null);
+        stats.put("maxSize", batchMaxSize);
+        stats.put("maxWaitMs", batchMaxWaitMs);
+        if (batcher != null) {
+            stats.put("pending", batcher.getPending());
+            stats.put("batches", batcher.getBatches());
+            stats.put("items", batcher.getItems());
+            stats.put("dropped", batcher.getDropped());
+        }
+        return stats;
+    }
+    
+    // Cached result of the circuit breaker's background probe
+    public boolean isMLServiceHealthy() {
+        return circuitBreaker.isHealthy();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.civicchain.service;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Collects submitted items into batches of up to maxSize, waiting at most maxWaitMs after the first
+// item of a batch, and hands each batch to the handler on the given executor. A single collector
+// thread does the grouping; the executor bounds how many batches are in flight.
+class MicroBatcher<T> {
+
+    private final String name;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<T> pending;
+    private final Executor executor;
+    private final Consumer<List<T>> handler;
+    private final BiConsumer<List<T>, RejectedExecutionException> rejectionHandler;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread collector;
+
+    MicroBatcher(String name, int maxSize, long maxWaitMs, int maxPending, Executor executor,
+                 Consumer<List<T>> handler, BiConsumer<List<T>, RejectedExecutionException> rejectionHandler) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.pending = new LinkedBlockingQueue<>(maxPending);
+        this.executor = executor;
+        this.handler = handler;
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    synchronized void start() {
+        if (collector == null) {
+            collector = new Thread(this::collect, name + "-batcher");
+            collector.setDaemon(true);
+            collector.start();
+        }
+    }
+
+    synchronized void stop() {
+        if (collector != null) {
+            collector.interrupt();
+            collector = null;
+        }
+    }
+
+    void submit(T item) {
+        if (!pending.offer(item)) {
+            dropped.incrementAndGet();
+            throw new TaskRejectedException(name + " batch queue is full");
+        }
+    }
+
+    int getPending() {
+        return pending.size();
+    }
+
+    long getBatches() {
+        return batches.get();
+    }
+
+    long getItems() {
+        return items.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void collect() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<T> batch = new ArrayList<>(maxSize);
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // Whatever is already queued joins the batch even once the wait is over
+                    T next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(List<T> batch) {
+        try {
+            executor.execute(() -> handler.accept(batch));
+            batches.incrementAndGet();
+            items.addAndGet(batch.size());
+        } catch (RejectedExecutionException e) {
+            dropped.addAndGet(batch.size());
+            System.err.println(name + " executor full, dropped a batch of " + batch.size());
+            rejectionHandler.accept(batch, e);
+        }
+    }
+}
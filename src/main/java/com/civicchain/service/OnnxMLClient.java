@@ -0,0 +1,239 @@
+package com.civicchain.service;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Runs an exported MobileNetV2 in-process with ONNX Runtime on the CPU instead of calling the Python
+// service. Blocking: inference happens on the calling ML executor thread, so civicchain.ml.executor.concurrency
+// bounds how many images run at once.
+@Component
+@ConditionalOnProperty(name = "civicchain.ml.client", havingValue = "onnx")
+public class OnnxMLClient implements MLClient {
+
+    private static final int SIZE = 224;
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private final OrtSession session;
+    private final String inputName;
+    // NCHW models (PyTorch exports) take channels first; Keras exports via tf2onnx are NHWC
+    private final boolean channelsFirst;
+    // Whether the model takes a whole batch in one run or only one image at a time
+    private final boolean dynamicBatch;
+    private final List<String> labels;
+
+    public OnnxMLClient(@Value("${civicchain.ml.onnx.model-path:models/mobilenet_v2.onnx}") String modelPath,
+                        @Value("${civicchain.ml.onnx.labels-path:models/imagenet_class_index.json}") String labelsPath,
+                        @Value("${civicchain.ml.onnx.intra-op-threads:1}") int intraOpThreads) {
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(intraOpThreads);
+            this.session = environment.createSession(modelPath, options);
+            this.inputName = session.getInputNames().iterator().next();
+            NodeInfo input = session.getInputInfo().get(inputName);
+            long[] shape = ((TensorInfo) input.getInfo()).getShape();
+            this.channelsFirst = shape.length == 4 && shape[1] == 3;
+            this.dynamicBatch = shape.length == 4 && shape[0] < 0;
+        } catch (OrtException e) {
+            throw new IllegalStateException("Could not load ONNX model " + modelPath + ": " + e.getMessage(), e);
+        }
+        this.labels = loadLabels(Path.of(labelsPath));
+        System.out.println("Loaded ONNX model " + modelPath + " (" + labels.size() + " classes, "
+            + (channelsFirst ? "NCHW" : "NHWC") + ")");
+    }
+
+    // Either Keras' imagenet_class_index.json ({"0": ["n01440764", "tench"], ...}), which gives the same
+    // class names decode_predictions does, or a plain text file with one label per line
+    private static List<String> loadLabels(Path path) {
+        try {
+            List<String> labels = new ArrayList<>();
+            if (path.toString().endsWith(".json")) {
+                JsonNode index = new ObjectMapper().readTree(path.toFile());
+                for (int i = 0; index.has(String.valueOf(i)); i++) {
+                    labels.add(index.get(String.valueOf(i)).get(1).asText());
+                }
+            } else {
+                for (String line : Files.readAllLines(path)) {
+                    if (!line.isBlank()) {
+                        labels.add(line.trim());
+                    }
+                }
+            }
+            return labels;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read labels " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws OrtException {
+        session.close();
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> verify(Resource image, String category) {
+        try {
+            float[] probabilities = predict(List.of(pixels(image))).get(0);
+            return CompletableFuture.completedFuture(CivicCategoryMatcher.buildResult(probabilities, labels, category));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Undecodable images get an {"error": ...} slot, like /verify_batch
+    @Override
+    public CompletableFuture<JsonNode> verifyBatch(List<Resource> images, List<String> categories) {
+        try {
+            List<BufferedImage> decoded = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            for (Resource image : images) {
+                try {
+                    decoded.add(pixels(image));
+                    errors.add(null);
+                } catch (IllegalStateException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+
+            Iterator<float[]> predictions = decoded.isEmpty() ? List.<float[]>of().iterator() : predict(decoded).iterator();
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            ArrayNode results = response.putArray("results");
+            for (int i = 0; i < images.size(); i++) {
+                if (errors.get(i) != null) {
+                    results.addObject().put("error", errors.get(i));
+                } else {
+                    results.add(CivicCategoryMatcher.buildResult(predictions.next(), labels, categories.get(i)));
+                }
+            }
+            return CompletableFuture.completedFuture(response);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return true;
+    }
+
+    private List<float[]> predict(List<BufferedImage> images) throws OrtException {
+        if (!dynamicBatch && images.size() > 1) {
+            List<float[]> probabilities = new ArrayList<>();
+            for (BufferedImage image : images) {
+                probabilities.add(predict(List.of(image)).get(0));
+            }
+            return probabilities;
+        }
+
+        int n = images.size();
+        FloatBuffer input = FloatBuffer.allocate(n * SIZE * SIZE * 3);
+        for (BufferedImage image : images) {
+            writePixels(image, input);
+        }
+        input.flip();
+        long[] shape = channelsFirst ? new long[] {n, 3, SIZE, SIZE} : new long[] {n, SIZE, SIZE, 3};
+        try (OnnxTensor tensor = OnnxTensor.createTensor(environment, input, shape);
+             OrtSession.Result result = session.run(Map.of(inputName, tensor))) {
+            float[][] output = (float[][]) result.get(0).getValue();
+            List<float[]> probabilities = new ArrayList<>(n);
+            for (float[] row : output) {
+                probabilities.add(softmaxIfLogits(row));
+            }
+            return probabilities;
+        }
+    }
+
+    // mobilenet_v2.preprocess_input: RGB scaled to [-1, 1]
+    private void writePixels(BufferedImage image, FloatBuffer input) {
+        int[] rgb = image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+        if (channelsFirst) {
+            for (int shift = 16; shift >= 0; shift -= 8) {
+                for (int pixel : rgb) {
+                    input.put(((pixel >> shift) & 0xFF) / 127.5f - 1f);
+                }
+            }
+        } else {
+            for (int pixel : rgb) {
+                input.put(((pixel >> 16) & 0xFF) / 127.5f - 1f);
+                input.put(((pixel >> 8) & 0xFF) / 127.5f - 1f);
+                input.put((pixel & 0xFF) / 127.5f - 1f);
+            }
+        }
+    }
+
+    // Keras exports end in a softmax; models exported without one return logits
+    private static float[] softmaxIfLogits(float[] values) {
+        double sum = 0;
+        boolean negative = false;
+        for (float value : values) {
+            sum += value;
+            negative |= value < 0;
+        }
+        if (!negative && Math.abs(sum - 1.0) < 0.01) {
+            return values;
+        }
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : values) {
+            max = Math.max(max, value);
+        }
+        double total = 0;
+        float[] probabilities = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            probabilities[i] = (float) Math.exp(values[i] - max);
+            total += probabilities[i];
+        }
+        for (int i = 0; i < values.length; i++) {
+            probabilities[i] /= total;
+        }
+        return probabilities;
+    }
+
+    // Uploads normally arrive already scaled by MLImagePreprocessor; anything else is scaled here
+    private static BufferedImage pixels(Resource image) {
+        BufferedImage decoded;
+        try (InputStream in = image.getInputStream()) {
+            decoded = ImageIO.read(in);
+        } catch (IOException e) {
+            decoded = null;
+        }
+        if (decoded == null) {
+            throw new IllegalStateException("Could not decode image " + image.getFilename());
+        }
+        if (decoded.getWidth() == SIZE && decoded.getHeight() == SIZE && decoded.getType() == BufferedImage.TYPE_INT_RGB) {
+            return decoded;
+        }
+        BufferedImage scaled = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(decoded, 0, 0, SIZE, SIZE, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,133 @@
+package com.civicchain.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Order-statistic treap over (xp desc, userId asc): insert, remove, rank and select in O(log n).
+// Not thread-safe; LeaderboardService guards it.
+class RankTree {
+
+    private static final class Node {
+        final long userId;
+        final int xp;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(long userId, int xp) {
+            this.userId = userId;
+            this.xp = xp;
+        }
+    }
+
+    private Node root;
+
+    int size() {
+        return size(root);
+    }
+
+    void insert(long userId, int xp) {
+        Node[] parts = split(root, userId, xp);
+        root = merge(merge(parts[0], new Node(userId, xp)), parts[1]);
+    }
+
+    void remove(long userId, int xp) {
+        root = remove(root, userId, xp);
+    }
+
+    // 1-based position of the entry; the entry must be present
+    int rank(long userId, int xp) {
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(userId, xp, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        return before + 1;
+    }
+
+    // User id at the given 1-based rank
+    long select(int rank) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank <= leftSize) {
+                node = node.left;
+            } else if (rank == leftSize + 1) {
+                return node.userId;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("Rank out of range");
+    }
+
+    private static int compare(long userId, int xp, Node node) {
+        if (xp != node.xp) {
+            return xp > node.xp ? -1 : 1;
+        }
+        return Long.compare(userId, node.userId);
+    }
+
+    // Splits into entries ordered before the key and entries at or after it
+    private static Node[] split(Node node, long userId, int xp) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        if (compare(userId, xp, node) > 0) {
+            Node[] parts = split(node.right, userId, xp);
+            node.right = parts[0];
+            update(node);
+            return new Node[] {node, parts[1]};
+        }
+        Node[] parts = split(node.left, userId, xp);
+        node.left = parts[1];
+        update(node);
+        return new Node[] {parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node remove(Node node, long userId, int xp) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(userId, xp, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, userId, xp);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, userId, xp);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+}
@@ -1,19 +1,27 @@
 package com.civicchain.service;
 
+import com.civicchain.dto.MLVerificationResult;
+import com.civicchain.dto.ReportCursor;
+import com.civicchain.dto.ReportPage;
+import com.civicchain.dto.ReportSummary;
+import com.civicchain.dto.StoredUpload;
+import com.civicchain.model.MLJob;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
+import com.civicchain.model.XpEvent;
+import com.civicchain.repository.MLJobRepository;
 import com.civicchain.repository.ReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class ReportService {
@@ -22,17 +30,91 @@ public class ReportService {
     private ReportRepository reportRepository;
     
     @Autowired
-    private MLService mlService;
+    private MLJobRepository mlJobRepository;
     
     @Autowired
     private UserService userService;
     
-    private final String UPLOAD_DIR = "uploads/";
+    @Autowired
+    private DashboardStatsService statsService;
+    
+    @Autowired
+    private HeatmapService heatmapService;
+    
+    @Autowired
+    private DuplicateReportIndex duplicateIndex;
+    
+    @Autowired
+    private UploadStorageService uploadStorage;
+    
+    @Autowired
+    private ImageVariantService imageVariants;
+    
+    @Autowired
+    private AudioTranscodeService audioTranscoder;
+    
+    @Autowired
+    private VerificationService verificationService;
+    
+    @Value("${civicchain.duplicates.mode:FLAG}")
+    private DuplicateReportIndex.Mode duplicateMode;
+    
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
     
     public List<Report> getAllReports() {
         return reportRepository.findAllReportsOrderByDate();
     }
     
+    public ReportPage<Report> getReportPage(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        // Fetch one extra row to know whether another page exists
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        
+        List<Report> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = reportRepository.findFirstPage(pageRequest);
+        } else {
+            ReportCursor position = ReportCursor.decode(cursor);
+            rows = reportRepository.findPageAfter(position.getCreatedAt(), position.getId(), pageRequest);
+        }
+        return toPage(rows, pageSize, last -> new ReportCursor(last.getCreatedAt(), last.getId()));
+    }
+    
+    public ReportPage<ReportSummary> getReportSummaryPage(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        
+        List<ReportSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = reportRepository.findFirstSummaryPage(pageRequest);
+        } else {
+            ReportCursor position = ReportCursor.decode(cursor);
+            rows = reportRepository.findSummaryPageAfter(position.getCreatedAt(), position.getId(), pageRequest);
+        }
+        return toPage(rows, pageSize, last -> new ReportCursor(last.createdAt(), last.id()));
+    }
+    
+    public List<ReportSummary> getReportSummariesByStatus(Report.Status status) {
+        return reportRepository.findSummariesByStatus(status);
+    }
+    
+    public List<ReportSummary> getReportSummariesByReporter(Long reporterId) {
+        return reportRepository.findSummariesByReporterId(reporterId);
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
+    private <T> ReportPage<T> toPage(List<T> rows, int pageSize, Function<T, ReportCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new ReportPage<>(rows, null);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        return new ReportPage<>(page, cursorOf.apply(page.get(pageSize - 1)).encode());
+    }
+    
     public Optional<Report> getReportById(Long id) {
         return reportRepository.findById(id);
     }
@@ -49,105 +131,193 @@ public class ReportService {
         return reportRepository.findVerifiedReports();
     }
     
-    public Report createReport(Report report, MultipartFile imageFile, MultipartFile audioFile) {
+    // Uploads are streamed to staging beforehand (UploadStorageService) and attached to their stored
+    // content here; they are discarded when the report is not stored
+    @Transactional
+    public Report createReport(Report report, StoredUpload image, StoredUpload audio) {
         try {
-            // Save files if provided
-            if (imageFile != null && !imageFile.isEmpty()) {
-                String imagePath = saveFile(imageFile, "images");
-                report.setImagePath(imagePath);
+            DuplicateReportIndex.Candidate canonical = findCanonical(report);
+            if (canonical != null && duplicateMode == DuplicateReportIndex.Mode.MERGE) {
+                // Nothing new is stored; the filing only counts towards the earlier report
+                uploadStorage.delete(image);
+                uploadStorage.delete(audio);
+                foldDuplicate(report, canonical);
+                System.out.println("Merged duplicate report into report " + canonical.getId()
+                    + " (" + Math.round(canonical.getDistanceMeters()) + "m away)");
+                return reportRepository.findWithReporterById(canonical.getId())
+                    .orElseThrow(() -> new RuntimeException("Report not found"));
+            }
+            
+            if (image != null) {
+                report.setImagePath(uploadStorage.attach(image));
+                // Hashed while it was written, so the ML result cache need not read it again
+                report.setImageSha256(image.getSha256());
+            }
+            
+            if (audio != null) {
+                report.setAudioPath(uploadStorage.attach(audio));
             }
             
-            if (audioFile != null && !audioFile.isEmpty()) {
-                String audioPath = saveFile(audioFile, "audio");
-                report.setAudioPath(audioPath);
+            if (canonical != null) {
+                report.setDuplicateOfId(canonical.getId());
             }
             
             // Save report
             Report savedReport = reportRepository.save(report);
+            // In-memory views only learn about the report once it is committed
+            afterCommit(() -> {
+                statsService.reportCreated(savedReport);
+                heatmapService.reportCreated(savedReport);
+            });
+            imageVariants.schedule(savedReport);
+            audioTranscoder.schedule(savedReport);
+            
+            if (canonical != null) {
+                // Duplicates skip AI verification and XP; the earlier report gets their vote instead
+                foldDuplicate(report, canonical);
+                return savedReport;
+            }
+            afterCommit(() -> duplicateIndex.add(savedReport));
             
-            // Send to ML service for AI verification if image is provided
+            // Queue AI verification in the same transaction, so a committed report always has its job
             if (report.getImagePath() != null) {
-                try {
-                    mlService.verifyReportAsync(savedReport);
-                } catch (Exception e) {
-                    System.err.println("ML verification failed: " + e.getMessage());
-                }
+                mlJobRepository.save(new MLJob(savedReport.getId()));
             }
             
             // Award XP to user
             if (report.getReporter() != null) {
-                userService.addXpToUser(report.getReporter().getId(), 10);
+                userService.addXpToUser(report.getReporter().getId(), 10, XpEvent.Reason.REPORT_SUBMITTED, savedReport.getId());
             }
             
             return savedReport;
             
         } catch (Exception e) {
+            uploadStorage.delete(image);
+            uploadStorage.delete(audio);
             throw new RuntimeException("Failed to create report: " + e.getMessage());
         }
     }
     
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    // Oldest open report of the same category nearby, or null; rejected, resolved and deleted
+    // reports are dropped from the index as they turn up
+    private DuplicateReportIndex.Candidate findCanonical(Report report) {
+        if (duplicateMode == DuplicateReportIndex.Mode.OFF) {
+            return null;
+        }
+        for (DuplicateReportIndex.Candidate candidate :
+                duplicateIndex.findCandidates(report.getCategory(), report.getLatitude(), report.getLongitude())) {
+            List<Object[]> state = reportRepository.findVoteState(candidate.getId());
+            Report.Status status = state.isEmpty() ? null : (Report.Status) state.get(0)[0];
+            if (status == null || status == Report.Status.REJECTED || status == Report.Status.RESOLVED) {
+                duplicateIndex.remove(candidate.getId());
+                continue;
+            }
+            return candidate;
+        }
+        return null;
+    }
+    
+    private void foldDuplicate(Report report, DuplicateReportIndex.Candidate canonical) {
+        reportRepository.incrementDuplicateCount(canonical.getId());
+        Long reporterId = report.getReporter() != null ? report.getReporter().getId() : null;
+        if (reporterId != null && !reporterId.equals(canonical.getReporterId())) {
+            // Own transaction after ours: this one holds the canonical row lock from the increment above
+            afterCommit(() -> {
+                try {
+                    verificationService.recordDuplicateVote(reporterId, canonical.getId());
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to record duplicate vote on report " + canonical.getId() + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+    
+    // Writes only the AI columns, so votes counted while the ML call was running are kept
+    @Transactional
+    public void applyAiResult(Long reportId, MLVerificationResult result) {
+        reportRepository.updateAiResult(reportId, result.isAiVerified(), result.getConfidence(), result.getPrediction());
+        
+        // Auto-verify if AI confidence is high
+        if (result.isAiVerified() && result.getConfidence() > 0.8) {
+            List<Object[]> state = reportRepository.findVoteState(reportId);
+            if (!state.isEmpty() && reportRepository.markVerified(reportId, Report.Status.VERIFIED) > 0) {
+                statsService.statusChanged((Report.Status) state.get(0)[0], Report.Status.VERIFIED);
+            }
+        }
+    }
+    
+    // Only once the job is dead-lettered; retries leave the report untouched
+    @Transactional
+    public void recordAiVerificationFailure(Long reportId) {
+        reportRepository.updateAiResult(reportId, false, 0.0, "Verification failed");
+    }
+    
     public Report updateReport(Report report) {
         return reportRepository.save(report);
     }
     
+    // The row lock makes the audio transcoder's replaceAudio wait for us (and then miss), or us wait
+    // for it and release the path it swapped in, so each stored file is released exactly once
+    @Transactional
     public void deleteReport(Long id) {
-        reportRepository.deleteById(id);
+        reportRepository.findByIdForUpdate(id).ifPresent(report -> {
+            reportRepository.delete(report);
+            reportRepository.clearDuplicateOf(id);
+            String imagePath = report.getImagePath();
+            if (uploadStorage.release(imagePath)) {
+                afterCommit(() -> imageVariants.delete(imagePath));
+            }
+            uploadStorage.release(report.getAudioPath());
+            afterCommit(() -> {
+                statsService.reportDeleted(report);
+                heatmapService.reportDeleted(report);
+                duplicateIndex.remove(id);
+            });
+        });
     }
     
     public Report approveReport(Long id) {
         Report report = reportRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Report not found"));
+        Report.Status previous = report.getStatus();
         report.setStatus(Report.Status.VERIFIED);
         report.setVerified(true);
-        return reportRepository.save(report);
+        Report saved = reportRepository.save(report);
+        statsService.statusChanged(previous, saved.getStatus());
+        return saved;
     }
     
     public Report rejectReport(Long id) {
         Report report = reportRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Report not found"));
+        Report.Status previous = report.getStatus();
         report.setStatus(Report.Status.REJECTED);
-        return reportRepository.save(report);
+        Report saved = reportRepository.save(report);
+        statsService.statusChanged(previous, saved.getStatus());
+        return saved;
     }
     
-    private String saveFile(MultipartFile file, String subDir) throws IOException {
-        // Create directories if they don't exist
-        Path uploadPath = Paths.get(UPLOAD_DIR + subDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null ? 
-            originalFilename.substring(originalFilename.lastIndexOf(".")) : "";
-        String filename = UUID.randomUUID().toString() + extension;
-        
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath);
-        
-        return subDir + "/" + filename;
+    public List<Report> getRecentReportsByStatus(Report.Status status) {
+        return reportRepository.findTop10ByStatusOrderByCreatedAtDesc(status);
     }
     
     public Long getReportCountByStatus(Report.Status status) {
         return reportRepository.countByStatus(status);
     }
     
-    public List<Report> getReportsForHeatmap(String severity, String category) {
-        if (severity != null && category != null) {
-            return reportRepository.findBySeverityAndCategory(
-                Report.Severity.valueOf(severity.toUpperCase()), 
-                Report.Category.valueOf(category.toUpperCase())
-            );
-        } else if (severity != null) {
-            return reportRepository.findBySeverity(Report.Severity.valueOf(severity.toUpperCase()));
-        } else if (category != null) {
-            return reportRepository.findByCategory(Report.Category.valueOf(category.toUpperCase()));
-        } else {
-            return reportRepository.findAllReportsOrderByDate();
-        }
-    }
-    
     public Long getReportCountBySeverity(Report.Severity severity) {
         return reportRepository.countBySeverity(severity);
     }
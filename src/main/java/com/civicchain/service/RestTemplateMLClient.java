@@ -0,0 +1,87 @@
+package com.civicchain.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Blocking client; each call holds the calling ML executor thread until the response or the read timeout
+@Component
+@ConditionalOnProperty(name = "civicchain.ml.client", havingValue = "resttemplate")
+public class RestTemplateMLClient implements MLClient {
+
+    private final String mlServiceUrl;
+    private final RestTemplate restTemplate;
+    private final RestTemplate healthRestTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RestTemplateMLClient(@Value("${ml.service.url:http://localhost:8000}") String mlServiceUrl,
+                                @Value("${civicchain.ml.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                @Value("${civicchain.ml.http.response-timeout-ms:30000}") int responseTimeoutMs,
+                                @Value("${civicchain.ml.http.health-timeout-ms:2000}") int healthTimeoutMs) {
+        this.mlServiceUrl = mlServiceUrl;
+        this.restTemplate = restTemplate(connectTimeoutMs, responseTimeoutMs);
+        this.healthRestTemplate = restTemplate(Math.min(connectTimeoutMs, healthTimeoutMs), healthTimeoutMs);
+    }
+    
+    private static RestTemplate restTemplate(int connectTimeoutMs, int readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> verify(Resource image, String category) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("image_file", image);
+        body.add("category", category);
+        return post("/verify", body);
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> verifyBatch(List<Resource> images, List<String> categories) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        for (int i = 0; i < images.size(); i++) {
+            body.add("image_files", images.get(i));
+            body.add("categories", categories.get(i));
+        }
+        return post("/verify_batch", body).exceptionallyCompose(error ->
+            error instanceof HttpClientErrorException.NotFound
+                ? CompletableFuture.failedFuture(new UnsupportedOperationException("ML service has no /verify_batch"))
+                : CompletableFuture.failedFuture(error));
+    }
+
+    @Override
+    public boolean isHealthy() {
+        try {
+            ResponseEntity<String> response = healthRestTemplate.getForEntity(mlServiceUrl + "/health", String.class);
+            return response.getStatusCode() == HttpStatus.OK;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private CompletableFuture<JsonNode> post(String path, MultiValueMap<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        try {
+            ResponseEntity<String> response = restTemplate.postForEntity(mlServiceUrl + path,
+                new HttpEntity<>(body, headers), String.class);
+            return CompletableFuture.completedFuture(objectMapper.readTree(response.getBody()));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.StoredUpload;
+import com.civicchain.model.StoredFile;
+import com.civicchain.repository.StoredFileRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.apache.commons.fileupload.util.Streams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+// Writes uploads under uploads/ in a single pass: bytes go from the request through one reusable
+// buffer into a staging file, while the SHA-256, the size and the content type are worked out on the way.
+// Attached files live at a content-addressed path fanned out by hash prefix (images/ab/cd/<sha256>.jpg),
+// so identical uploads are stored once and no directory grows past a few hundred entries; a stored_files
+// row counts the report paths referring to each one.
+@Service
+public class UploadStorageService {
+
+    private static final String UPLOAD_DIR = "uploads/";
+    private static final String STAGING_DIR = ".staging";
+    private static final long STAGING_MAX_AGE_MS = 60 * 60 * 1000L;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String UNKNOWN_TYPE = "application/octet-stream";
+
+    // Text fields and stored files of a streamed multipart request
+    public static final class UploadForm {
+        private final Map<String, String> fields = new HashMap<>();
+        private final Map<String, StoredUpload> files = new HashMap<>();
+
+        public String getField(String name) {
+            return fields.get(name);
+        }
+
+        public StoredUpload getFile(String name) {
+            return files.get(name);
+        }
+
+        public Map<String, StoredUpload> getFiles() {
+            return files;
+        }
+    }
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:50MB}")
+    private DataSize maxRequestSize;
+
+    // Own transaction for stored_files placeholders, see lockForAttach
+    private TransactionTemplate placeholderTransaction;
+
+    @PostConstruct
+    void createPlaceholderTransaction() {
+        placeholderTransaction = new TransactionTemplate(transactionManager);
+        placeholderTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Parses a multipart request straight off the socket; file fields named in fileDirs are stored
+    // in the given subdirectory, other files are skipped. Stored files are removed again on failure.
+    public UploadForm readForm(HttpServletRequest request, Map<String, String> fileDirs) throws IOException {
+        FileUpload upload = new FileUpload();
+        upload.setFileSizeMax(maxFileSize.toBytes());
+        upload.setSizeMax(maxRequestSize.toBytes());
+
+        UploadForm form = new UploadForm();
+        try {
+            FileItemIterator items = upload.getItemIterator(requestContext(request));
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                try (InputStream in = item.openStream()) {
+                    if (item.isFormField()) {
+                        form.fields.put(item.getFieldName(), Streams.asString(in, StandardCharsets.UTF_8.name()));
+                    } else if (fileDirs.containsKey(item.getFieldName()) && item.getName() != null && !item.getName().isEmpty()) {
+                        StoredUpload stored = store(in, item.getName(), fileDirs.get(item.getFieldName()));
+                        if (stored.getSize() == 0) {
+                            delete(stored);
+                        } else {
+                            form.files.put(item.getFieldName(), stored);
+                        }
+                    } else {
+                        in.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+            }
+            return form;
+        } catch (FileUploadException e) {
+            form.files.values().forEach(this::delete);
+            throw new IllegalArgumentException("Invalid upload: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            form.files.values().forEach(this::delete);
+            // Size limits hit while reading a part surface as an IOException wrapping the real cause
+            if (e.getCause() instanceof FileUploadException) {
+                throw new IllegalArgumentException("Invalid upload: " + e.getCause().getMessage(), e);
+            }
+            throw e;
+        }
+    }
+
+    // Streams to a staging file; the content-addressed path is known once the last byte is hashed
+    public StoredUpload store(InputStream in, String originalFilename, String subDir) throws IOException {
+        Path dir = Paths.get(UPLOAD_DIR + STAGING_DIR);
+        Files.createDirectories(dir);
+
+        MessageDigest digest = sha256();
+        ReadableByteChannel source = Channels.newChannel(in);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // Fill the first buffer before writing, so the type is sniffed from the leading bytes
+        int read = 0;
+        while (buffer.hasRemaining() && read != -1) {
+            read = source.read(buffer);
+        }
+        String contentType = sniff(buffer.array(), buffer.position());
+        String stagingPath = STAGING_DIR + "/" + UUID.randomUUID();
+        Path target = Paths.get(UPLOAD_DIR + stagingPath);
+
+        long size = 0;
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            do {
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                size += buffer.limit();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            } while (read != -1 && (read = source.read(buffer)) != -1);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        String path = subDir + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/"
+            + sha256 + extension(contentType, originalFilename);
+        return new StoredUpload(path, stagingPath, sha256, size, contentType);
+    }
+
+    // Takes a reference to the upload's content and returns its path. The first reference moves the
+    // staging file into place once the transaction commits; later ones, and rolled back attaches,
+    // just drop their staged copy. Deciding which is first happens under the row lock: attaches of the
+    // same content queue on it, and whichever finds no reference yet owns the file.
+    @Transactional
+    public String attach(StoredUpload upload) {
+        StoredFile stored = lockForAttach(upload);
+        boolean first = stored.getRefCount() == 0;
+        stored.setRefCount(stored.getRefCount() + 1);
+        Path staging = Paths.get(UPLOAD_DIR + upload.getStagingPath());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (!first) {
+                    return;
+                }
+                Path target = Paths.get(UPLOAD_DIR + upload.getPath());
+                try {
+                    Files.createDirectories(target.getParent());
+                    move(staging, target);
+                } catch (IOException e) {
+                    System.err.println("Could not move upload into " + upload.getPath() + ": " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    Files.deleteIfExists(staging);
+                } catch (IOException e) {
+                    System.err.println("Could not delete upload " + upload.getStagingPath() + ": " + e.getMessage());
+                }
+            }
+        });
+        return upload.getPath();
+    }
+
+    // The locked stored_files row for the upload's path, created with no references when missing.
+    // The insert commits on its own, so losing the race to create it only costs that insert instead
+    // of failing the caller's transaction; a release may delete the row before we lock it, hence the retry.
+    private StoredFile lockForAttach(StoredUpload upload) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            // The check reads our snapshot, which may still show a row a release has since deleted
+            if (attempt > 0 || !storedFileRepository.existsByPath(upload.getPath())) {
+                try {
+                    placeholderTransaction.executeWithoutResult(status -> {
+                        StoredFile placeholder = new StoredFile(upload.getPath(), upload.getSha256(), upload.getSize(), upload.getContentType());
+                        placeholder.setRefCount(0);
+                        storedFileRepository.save(placeholder);
+                    });
+                } catch (DataIntegrityViolationException e) {
+                    // Created by a concurrent attach
+                }
+            }
+            StoredFile stored = storedFileRepository.findByPathForUpdate(upload.getPath()).orElse(null);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        throw new IllegalStateException("Could not reference upload " + upload.getPath());
+    }
+
+    // Drops one reference to a stored path and deletes the file with the last one; true when it was
+    // deleted. Paths without a stored_files row predate content addressing and are left alone.
+    // The row stays locked until commit, so an attach of the same content waits, then finds neither
+    // row nor file and puts its own copy in place; the file is set aside rather than deleted until
+    // the delete commits, and put back on rollback.
+    @Transactional
+    public boolean release(String path) {
+        if (path == null) {
+            return false;
+        }
+        StoredFile stored = storedFileRepository.findByPathForUpdate(path).orElse(null);
+        if (stored == null) {
+            return false;
+        }
+        if (stored.getRefCount() > 1) {
+            stored.setRefCount(stored.getRefCount() - 1);
+            return false;
+        }
+        storedFileRepository.delete(stored);
+
+        Path target = Paths.get(UPLOAD_DIR + path);
+        Path trash = Paths.get(UPLOAD_DIR + STAGING_DIR + "/" + UUID.randomUUID());
+        try {
+            Files.createDirectories(trash.getParent());
+            if (Files.exists(target)) {
+                move(target, trash);
+                // A move keeps the old mtime; the sweep must not take it for abandoned before we commit
+                Files.setLastModifiedTime(trash, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete upload " + path, e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        Files.deleteIfExists(trash);
+                    } else if (Files.exists(trash)) {
+                        move(trash, target);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not finish deleting upload " + path + ": " + e.getMessage());
+                }
+            }
+        });
+        return true;
+    }
+
+    // The file behind a path relative to uploads/, or null when the path escapes the directory or
+    // points into hidden entries such as the staging area
+    public Path resolve(String path) {
+        Path root = Paths.get(UPLOAD_DIR).toAbsolutePath().normalize();
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return null;
+        }
+        for (Path part : root.relativize(file)) {
+            if (part.toString().startsWith(".")) {
+                return null;
+            }
+        }
+        return file;
+    }
+
+    // Discards an upload that was never attached
+    public void delete(StoredUpload upload) {
+        if (upload == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(UPLOAD_DIR + upload.getStagingPath()));
+        } catch (IOException e) {
+            System.err.println("Could not delete upload " + upload.getStagingPath() + ": " + e.getMessage());
+        }
+    }
+
+    // Staging files outlive their request only when the process died mid-upload
+    @Scheduled(fixedDelay = 15 * 60 * 1000L)
+    public void sweepStaging() {
+        Path dir = Paths.get(UPLOAD_DIR + STAGING_DIR);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - STAGING_MAX_AGE_MS;
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not sweep staged uploads: " + e.getMessage());
+        }
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " abandoned staged uploads");
+        }
+        // Rows whose every attach rolled back
+        storedFileRepository.deleteUnreferenced(LocalDateTime.now().minusSeconds(STAGING_MAX_AGE_MS / 1000));
+    }
+
+    public Map<String, Object> getStats() {
+        Object[] row = storedFileRepository.summarize().get(0);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("files", row[0]);
+        stats.put("references", row[1]);
+        stats.put("bytes", row[2]);
+        return stats;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Content type from magic numbers for the image and audio formats phones and browsers produce
+    static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G')) return "image/png";
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(head, length, 0, 'B', 'M')) return "image/bmp";
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F')) {
+            if (startsWith(head, length, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+            if (startsWith(head, length, 8, 'W', 'A', 'V', 'E')) return "audio/wav";
+        }
+        if (startsWith(head, length, 4, 'f', 't', 'y', 'p') && length >= 12) {
+            String brand = new String(head, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.equals("heic") || brand.equals("heix") || brand.equals("mif1")) return "image/heic";
+            return brand.startsWith("M4A") ? "audio/mp4" : "video/mp4";
+        }
+        if (startsWith(head, length, 0, 'I', 'D', '3')) return "audio/mpeg";
+        if (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xE0) == 0xE0) return "audio/mpeg";
+        if (startsWith(head, length, 0, 'O', 'g', 'g', 'S')) return "audio/ogg";
+        if (startsWith(head, length, 0, 'f', 'L', 'a', 'C')) return "audio/flac";
+        // Matroska/WebM; browsers record voice notes with MediaRecorder in this container
+        if (startsWith(head, length, 0, 0x1A, 0x45, 0xDF, 0xA3)) return "audio/webm";
+        return UNKNOWN_TYPE;
+    }
+
+    // The sniffed type decides the extension; the client's name is only used for unrecognised content
+    private static String extension(String contentType, String originalFilename) {
+        String extension = switch (contentType) {
+            case "image/jpeg" -> "jpg";
+            case "image/png" -> "png";
+            case "image/gif" -> "gif";
+            case "image/bmp" -> "bmp";
+            case "image/webp" -> "webp";
+            case "image/heic" -> "heic";
+            case "audio/wav" -> "wav";
+            case "audio/mp4" -> "m4a";
+            case "video/mp4" -> "mp4";
+            case "audio/mpeg" -> "mp3";
+            case "audio/ogg" -> "ogg";
+            case "audio/flac" -> "flac";
+            case "audio/webm" -> "webm";
+            default -> null;
+        };
+        if (extension == null && originalFilename != null) {
+            int dot = originalFilename.lastIndexOf('.');
+            String claimed = dot >= 0 ? originalFilename.substring(dot + 1) : "";
+            extension = claimed.matches("[A-Za-z0-9]{1,8}") ? claimed.toLowerCase() : null;
+        }
+        return extension != null ? "." + extension : "";
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, int... magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static UploadContext requestContext(HttpServletRequest request) {
+        return new UploadContext() {
+            @Override
+            public String getCharacterEncoding() {
+                return request.getCharacterEncoding();
+            }
+
+            @Override
+            public String getContentType() {
+                return request.getContentType();
+            }
+
+            @Override
+            @Deprecated
+            public int getContentLength() {
+                return request.getContentLength();
+            }
+
+            @Override
+            public long contentLength() {
+                return request.getContentLengthLong();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return request.getInputStream();
+            }
+        };
+    }
+}
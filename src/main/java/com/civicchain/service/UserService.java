@@ -1,8 +1,10 @@
 package com.civicchain.service;
 
 import com.civicchain.model.User;
+import com.civicchain.model.XpEvent;
 import com.civicchain.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,11 +17,24 @@ public class UserService {
 
     @Autowired
     private UserRepository userRepository;
+    
+    @Autowired
+    private DashboardStatsService statsService;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @Autowired
+    private XpLedgerService xpLedgerService;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    public List<User> getFirstUsers(int count) {
+        return userRepository.findAll(PageRequest.of(0, count)).getContent();
+    }
+
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
@@ -51,15 +66,34 @@ public class UserService {
 
         User user = new User(username, email, password);
         user.setRole(User.Role.USER);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        statsService.userCreated();
+        leaderboardService.update(saved);
+        return saved;
     }
 
-    public User updateUser(User user) {
-        return userRepository.save(user);
+    public void updateRole(Long id, User.Role role) {
+        if (userRepository.updateRole(id, role) == 0) {
+            throw new RuntimeException("User not found");
+        }
+    }
+    
+    // Admin "set XP to" becomes a ledger adjustment for the difference, counting awards that are
+    // recorded but not applied yet, so the batch that folds it in keeps every concurrent award
+    public void setXp(Long id, Integer xp) {
+        User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
+        long current = user.getXp() + xpLedgerService.getPendingXp(id);
+        if (xp != current) {
+            xpLedgerService.record(id, Math.toIntExact(xp - current), XpEvent.Reason.ADMIN_ADJUSTMENT, null);
+        }
     }
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        leaderboardService.remove(id);
+        userRepository.flush();
+        // Deleting a user cascades to their reports and votes, so recount rather than patch counters
+        statsService.reseed();
     }
     
     public List<User> getTopUsersByXp() {
@@ -70,11 +104,9 @@ public class UserService {
         return userRepository.findAllAdmins();
     }
     
-    public User addXpToUser(Long userId, Integer xp) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        user.addXp(xp);
-        return userRepository.save(user);
+    // Appends to the XP ledger; users.xp / level catch up when XpLedgerService applies the batch
+    public void addXpToUser(Long userId, Integer xp, XpEvent.Reason reason, Long reportId) {
+        xpLedgerService.record(userId, xp, reason, reportId);
     }
     
     public boolean authenticateUser(String username, String password) {
@@ -1,14 +1,24 @@
 package com.civicchain.service;
 
+import com.civicchain.dto.VoteSummary;
 import com.civicchain.model.Report;
 import com.civicchain.model.User;
 import com.civicchain.model.Verification;
+import com.civicchain.model.XpEvent;
 import com.civicchain.repository.ReportRepository;
 import com.civicchain.repository.VerificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -23,6 +33,9 @@ public class VerificationService {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private DashboardStatsService statsService;
+    
     public List<Verification> getVerificationsByReport(Report report) {
         return verificationRepository.findByReport(report);
     }
@@ -31,35 +44,78 @@ public class VerificationService {
         return verificationRepository.findByUser(user);
     }
     
-    public Verification submitVerification(Long userId, Long reportId, Verification.VoteType vote, String comment) {
+    // Counters are bumped with atomic UPDATEs and the unique (user_id, report_id) constraint rejects a
+    // second vote, so concurrent voters can neither lose increments nor vote twice
+    @Transactional
+    public VoteSummary submitVerification(Long userId, Long reportId, Verification.VoteType vote, String comment) {
+        VoteSummary summary = castVote(userId, reportId, vote, comment);
+        
+        // Award XP to user for verification
+        userService.addXpToUser(userId, 5, XpEvent.Reason.VOTE_CAST, summary.getReportId());
+        
+        return summary;
+    }
+    
+    // Filing a duplicate counts as an upvote on the earlier report, unless the user already voted on it.
+    // Runs in its own transaction once the duplicate is committed, so losing the race against a vote by
+    // hand only rolls back this vote. No XP: duplicates earn none, and refiling must not pay like voting
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean recordDuplicateVote(Long userId, Long canonicalId) {
+        if (verificationRepository.existsByUserIdAndReportId(userId, canonicalId)) {
+            return false;
+        }
+        try {
+            castVote(userId, canonicalId, Verification.VoteType.UPVOTE, "Filed a duplicate report");
+            return true;
+        } catch (RuntimeException e) {
+            // Already voted after all, or the report is gone; undo the counter increment
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+    
+    private VoteSummary castVote(Long userId, Long reportId, Verification.VoteType vote, String comment) {
         User user = userService.getUserById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
-        Report report = reportRepository.findById(reportId)
-            .orElseThrow(() -> new RuntimeException("Report not found"));
+        // Votes on a flagged duplicate count towards the report it duplicates
+        reportId = reportRepository.findDuplicateOfId(reportId).orElse(reportId);
         
-        // Check if user already voted on this report
-        if (verificationRepository.existsByUserAndReport(user, report)) {
+        // Cheap early answer for the common case; the constraint below covers the race
+        if (verificationRepository.existsByUserIdAndReportId(userId, reportId)) {
             throw new RuntimeException("User has already voted on this report");
         }
         
-        // Create verification
-        Verification verification = new Verification(vote, user, report);
-        verification.setComment(comment);
-        Verification saved = verificationRepository.save(verification);
+        // Increment first: it locks the report row and tells us whether the report exists
+        int updated = vote == Verification.VoteType.UPVOTE
+            ? reportRepository.incrementUpvotes(reportId)
+            : reportRepository.incrementDownvotes(reportId);
+        if (updated == 0) {
+            throw new RuntimeException("Report not found");
+        }
         
-        // Update report vote counts
-        if (vote == Verification.VoteType.UPVOTE) {
-            report.addUpvote();
-        } else {
-            report.addDownvote();
+        Verification verification = new Verification(vote, user, reportRepository.getReferenceById(reportId));
+        verification.setComment(comment);
+        try {
+            verificationRepository.saveAndFlush(verification);
+        } catch (DataIntegrityViolationException e) {
+            // Rolls back the increment above
+            throw new RuntimeException("User has already voted on this report");
         }
-        reportRepository.save(report);
         
-        // Award XP to user for verification
-        userService.addXpToUser(userId, 5);
+        // Evaluate auto-verification on the counters as they are after our increment
+        Object[] state = reportRepository.findVoteState(reportId).get(0);
+        Report.Status status = (Report.Status) state[0];
+        int upvotes = (Integer) state[1];
+        int downvotes = (Integer) state[2];
+        statsService.voteRecorded(vote);
+        if (vote == Verification.VoteType.UPVOTE
+                && Report.isAutoVerifiable((Boolean) state[3], (Double) state[4], upvotes, downvotes)
+                && reportRepository.markVerified(reportId, Report.Status.VERIFIED) > 0) {
+            statsService.statusChanged(status, Report.Status.VERIFIED);
+        }
         
-        return saved;
+        return new VoteSummary(reportId, upvotes, downvotes, vote);
     }
     
     public boolean hasUserVoted(Long userId, Long reportId) {
@@ -88,6 +144,33 @@ public class VerificationService {
         return verificationRepository.findByUserAndReport(user, report).orElse(null);
     }
     
+    // Vote state of one user across a page of reports in a single query; reports without a vote are absent
+    public Map<Long, Verification.VoteType> getUserVotesForReports(Long userId, Collection<Long> reportIds) {
+        Map<Long, Verification.VoteType> votes = new HashMap<>();
+        if (userId == null || reportIds == null || reportIds.isEmpty()) {
+            return votes;
+        }
+        
+        for (Object[] row : verificationRepository.findVotesByUserForReports(userId, reportIds)) {
+            votes.put((Long) row[0], (Verification.VoteType) row[1]);
+        }
+        return votes;
+    }
+    
+    // Counts and the user's own vote for many reports in one query; unknown report ids are absent
+    public Map<Long, VoteSummary> getVoteSummaries(Long userId, Collection<Long> reportIds) {
+        Map<Long, VoteSummary> summaries = new LinkedHashMap<>();
+        if (reportIds == null || reportIds.isEmpty()) {
+            return summaries;
+        }
+        
+        for (Object[] row : verificationRepository.findVoteSummaries(userId, reportIds)) {
+            Long reportId = (Long) row[0];
+            summaries.put(reportId, new VoteSummary(reportId, (Integer) row[1], (Integer) row[2], (Verification.VoteType) row[3]));
+        }
+        return summaries;
+    }
+    
     public Verification saveVerification(Verification verification) {
         return verificationRepository.save(verification);
     }
@@ -0,0 +1,110 @@
+package com.civicchain.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking client on a bounded Reactor Netty pool: at most max-connections calls are in flight,
+// up to pending-acquire-max more wait for a connection and the rest fail fast. Image files are
+// streamed into the multipart body rather than read into memory, and every call has a deadline.
+@Component
+@ConditionalOnProperty(name = "civicchain.ml.client", havingValue = "webclient", matchIfMissing = true)
+public class WebClientMLClient implements MLClient {
+
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final Duration deadline;
+    private final Duration healthTimeout;
+
+    public WebClientMLClient(@Value("${ml.service.url:http://localhost:8000}") String mlServiceUrl,
+                             @Value("${civicchain.ml.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                             @Value("${civicchain.ml.http.response-timeout-ms:30000}") long responseTimeoutMs,
+                             @Value("${civicchain.ml.http.max-connections:16}") int maxConnections,
+                             @Value("${civicchain.ml.http.pending-acquire-max:200}") int pendingAcquireMax,
+                             @Value("${civicchain.ml.http.health-timeout-ms:2000}") long healthTimeoutMs) {
+        this.deadline = Duration.ofMillis(responseTimeoutMs);
+        this.healthTimeout = Duration.ofMillis(healthTimeoutMs);
+        this.connectionProvider = ConnectionProvider.builder("ml-service")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(pendingAcquireMax)
+            .pendingAcquireTimeout(deadline)
+            .maxIdleTime(Duration.ofSeconds(30))
+            .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .responseTimeout(deadline);
+        this.webClient = WebClient.builder()
+            .baseUrl(mlServiceUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+
+    @PreDestroy
+    void close() {
+        connectionProvider.dispose();
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> verify(Resource image, String category) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("image_file", image);
+        body.part("category", category);
+        return post("/verify", body).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<JsonNode> verifyBatch(List<Resource> images, List<String> categories) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        for (int i = 0; i < images.size(); i++) {
+            body.part("image_files", images.get(i));
+            body.part("categories", categories.get(i));
+        }
+        return post("/verify_batch", body)
+            .onErrorMap(WebClientResponseException.NotFound.class,
+                e -> new UnsupportedOperationException("ML service has no /verify_batch"))
+            .toFuture();
+    }
+
+    @Override
+    public boolean isHealthy() {
+        try {
+            return Boolean.TRUE.equals(webClient.get().uri("/health")
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> response.getStatusCode().is2xxSuccessful())
+                .timeout(healthTimeout)
+                .block());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private Mono<JsonNode> post(String path, MultipartBodyBuilder body) {
+        return webClient.post()
+            .uri(path)
+            .body(BodyInserters.fromMultipartData(body.build()))
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            // Covers connection acquisition and the upload too, not just waiting for the response
+            .timeout(deadline)
+            // Callers write results to the database; keep that off the Netty event loop
+            .publishOn(Schedulers.boundedElastic());
+    }
+}
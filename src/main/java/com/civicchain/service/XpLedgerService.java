@@ -0,0 +1,85 @@
+package com.civicchain.service;
+
+import com.civicchain.model.User;
+import com.civicchain.model.XpEvent;
+import com.civicchain.repository.UserRepository;
+import com.civicchain.repository.XpEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// XP is written as append-only ledger rows; this folds them into users.xp / level in batches,
+// so award paths never read-modify-write the user row themselves
+@Service
+public class XpLedgerService {
+
+    @Autowired
+    private XpEventRepository xpEventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Value("${civicchain.xp.aggregate-batch-size:1000}")
+    private int batchSize;
+
+    public void record(Long userId, Integer amount, XpEvent.Reason reason, Long reportId) {
+        xpEventRepository.save(new XpEvent(userId, amount, reason, reportId));
+    }
+
+    public long getPendingXp(Long userId) {
+        return xpEventRepository.sumPending(userId);
+    }
+
+    public List<XpEvent> getRecentEvents(Long userId, int count) {
+        return xpEventRepository.findByUserIdOrderByIdDesc(userId, PageRequest.of(0, count));
+    }
+
+    // Several instances may run this at once: each locks the rows it read and claims them with a
+    // conditional UPDATE, and a batch that lost any row to another instance is rolled back whole
+    @Scheduled(fixedDelayString = "${civicchain.xp.aggregate-interval-ms:2000}")
+    @Transactional
+    public void applyPending() {
+        List<XpEvent> events = xpEventRepository.findPendingForUpdate(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Long> eventIds = new ArrayList<>(events.size());
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (XpEvent event : events) {
+            eventIds.add(event.getId());
+            deltas.merge(event.getUserId(), event.getAmount(), Integer::sum);
+        }
+        if (xpEventRepository.claim(eventIds) != eventIds.size()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return;
+        }
+
+        // Events of users deleted since are marked applied all the same
+        List<User> users = userRepository.findAllById(deltas.keySet());
+        for (User user : users) {
+            user.addXp(deltas.get(user.getId()));
+        }
+        // Ranks follow the committed totals, never a batch that rolled back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                users.forEach(leaderboardService::update);
+            }
+        });
+    }
+}
@@ -0,0 +1,431 @@
+package com.civicchain.mlstub;
+
+import com.civicchain.service.CivicCategoryMatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stand-in for ml-service/main.py with the same endpoints and JSON, for load and failure testing without
+// TensorFlow. Predictions are a pure function of image bytes + category, so repeated runs agree; latency
+// and errors are random. Test code only, so it stays out of the application jar; after mvn test-compile:
+//
+//   mvn -q dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.civicchain.mlstub.MLStubServer \
+//       --port=8000 --latency-ms=40 --latency-p99-ms=250 --error-rate=0.02
+//
+// Tests and benchmarks can also embed it with new MLStubServer(options).start().
+public class MLStubServer {
+
+    // Labels the stub predicts from: every CIVIC_CATEGORIES keyword plus ImageNet classes that match none
+    private static final List<String> DISTRACTORS = List.of(
+        "tabby", "golden_retriever", "pizza", "laptop", "umbrella", "teddy", "banana", "volcano");
+
+    public static class Options {
+        private int port = 8000;
+        private double latencyMs = 50;
+        private double latencyP99Ms = 50;
+        private double perImageMs = 5;
+        private double errorRate = 0;
+        private double hangRate = 0;
+        private long hangMs = 120_000;
+        private double verifyRate = 0.7;
+        private int threads = 64;
+
+        // Median latency per request; a p99 above it makes latency log-normal instead of fixed
+        public void setLatencyMs(double latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        public void setLatencyP99Ms(double latencyP99Ms) {
+            this.latencyP99Ms = latencyP99Ms;
+        }
+
+        // Extra latency per image in a /verify_batch call
+        public void setPerImageMs(double perImageMs) {
+            this.perImageMs = perImageMs;
+        }
+
+        // Share of /verify and /verify_batch calls answered with a 500
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        // Share of calls that stall for hangMs before answering, to exercise client deadlines
+        public void setHangRate(double hangRate) {
+            this.hangRate = hangRate;
+        }
+
+        public void setHangMs(long hangMs) {
+            this.hangMs = hangMs;
+        }
+
+        // Share of images whose prediction matches the reported category
+        public void setVerifyRate(double verifyRate) {
+            this.verifyRate = verifyRate;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        // --name=value arguments named after the setters, e.g. --latency-p99-ms=200
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                String value = parts[1];
+                switch (parts[0]) {
+                    case "port" -> options.setPort(Integer.parseInt(value));
+                    case "latency-ms" -> options.setLatencyMs(Double.parseDouble(value));
+                    case "latency-p99-ms" -> options.setLatencyP99Ms(Double.parseDouble(value));
+                    case "per-image-ms" -> options.setPerImageMs(Double.parseDouble(value));
+                    case "error-rate" -> options.setErrorRate(Double.parseDouble(value));
+                    case "hang-rate" -> options.setHangRate(Double.parseDouble(value));
+                    case "hang-ms" -> options.setHangMs(Long.parseLong(value));
+                    case "verify-rate" -> options.setVerifyRate(Double.parseDouble(value));
+                    case "threads" -> options.setThreads(Integer.parseInt(value));
+                    default -> throw new IllegalArgumentException("Unknown option " + parts[0]);
+                }
+            }
+            return options;
+        }
+    }
+
+    private static final class Part {
+        final String name;
+        final byte[] content;
+
+        Part(String name, byte[] content) {
+            this.name = name;
+            this.content = content;
+        }
+    }
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, List<Integer>> labelsByCategory = new LinkedHashMap<>();
+    // Every label check_category_match accepts for the category, other categories' included
+    private final Map<String, List<Integer>> labelsMatchingCategory = new LinkedHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong hangs = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MLStubServer(Options options) {
+        this.options = options;
+        for (Map.Entry<String, List<String>> category : CivicCategoryMatcher.CIVIC_CATEGORIES.entrySet()) {
+            List<Integer> indices = new ArrayList<>();
+            for (String keyword : category.getValue()) {
+                indices.add(labels.size());
+                labels.add(keyword);
+            }
+            labelsByCategory.put(category.getKey(), indices);
+        }
+        labels.addAll(DISTRACTORS);
+        for (Map.Entry<String, List<String>> category : CivicCategoryMatcher.CIVIC_CATEGORIES.entrySet()) {
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < labels.size(); i++) {
+                String label = labels.get(i).toLowerCase();
+                if (category.getValue().stream().anyMatch(label::contains)) {
+                    indices.add(i);
+                }
+            }
+            labelsMatchingCategory.put(category.getKey(), indices);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        MLStubServer server = new MLStubServer(Options.parse(args));
+        server.start();
+        System.out.println("ML stub listening on port " + server.getPort());
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(options.port), 0);
+        executor = Executors.newFixedThreadPool(options.threads);
+        server.setExecutor(executor);
+        server.createContext("/verify", exchange -> handle(exchange, "POST", this::verify));
+        server.createContext("/verify_batch", exchange -> handle(exchange, "POST", this::verifyBatch));
+        server.createContext("/health", exchange -> handle(exchange, "GET", this::health));
+        server.createContext("/categories", exchange -> handle(exchange, "GET", this::categories));
+        server.createContext("/stats", exchange -> handle(exchange, "GET", this::stats));
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    // The bound port, which differs from the configured one when that was 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("images", images.get());
+        stats.put("errors", errors.get());
+        stats.put("hangs", hangs.get());
+        return stats;
+    }
+
+    private interface Handler {
+        Object handle(HttpExchange exchange) throws IOException;
+    }
+
+    // Thrown to answer with an HTTP error and FastAPI's {"detail": ...} body
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String detail) {
+            super(detail);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            int status = 200;
+            Object body;
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    throw new HttpError(405, "Method Not Allowed");
+                }
+                body = handler.handle(exchange);
+            } catch (HttpError e) {
+                status = e.status;
+                body = Map.of("detail", e.getMessage());
+            }
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        }
+    }
+
+    private Object verify(HttpExchange exchange) throws IOException {
+        List<Part> parts = parseMultipart(exchange);
+        Part image = first(parts, "image_file");
+        Part category = first(parts, "category");
+        if (image == null || category == null) {
+            throw new HttpError(422, "image_file and category are required");
+        }
+        simulate(1);
+        return predict(image.content, text(category));
+    }
+
+    private Object verifyBatch(HttpExchange exchange) throws IOException {
+        List<Part> parts = parseMultipart(exchange);
+        List<Part> imageParts = all(parts, "image_files");
+        List<Part> categoryParts = all(parts, "categories");
+        if (imageParts.isEmpty() || imageParts.size() != categoryParts.size()) {
+            throw new HttpError(400, "Expected one category per image");
+        }
+        simulate(imageParts.size());
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode results = response.putArray("results");
+        for (int i = 0; i < imageParts.size(); i++) {
+            results.add(predict(imageParts.get(i).content, text(categoryParts.get(i))));
+        }
+        return response;
+    }
+
+    private Object health(HttpExchange exchange) {
+        return Map.of("status", "healthy", "model", "MobileNetV2 (stub)", "version", "1.0.0");
+    }
+
+    private Object categories(HttpExchange exchange) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("categories", new ArrayList<>(CivicCategoryMatcher.CIVIC_CATEGORIES.keySet()));
+        response.put("mappings", CivicCategoryMatcher.CIVIC_CATEGORIES);
+        return response;
+    }
+
+    private Object stats(HttpExchange exchange) {
+        return getStats();
+    }
+
+    // Latency, errors and hangs for one call covering `count` images
+    private void simulate(int count) {
+        requests.incrementAndGet();
+        images.addAndGet(count);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double latency = options.latencyMs;
+        if (options.latencyP99Ms > options.latencyMs && options.latencyMs > 0) {
+            // Log-normal with the given median and p99 (z = 2.326)
+            double sigma = Math.log(options.latencyP99Ms / options.latencyMs) / 2.326;
+            latency = options.latencyMs * Math.exp(sigma * random.nextGaussian());
+        }
+        latency += options.perImageMs * (count - 1);
+        if (random.nextDouble() < options.hangRate) {
+            hangs.incrementAndGet();
+            latency = options.hangMs;
+        }
+        sleep((long) latency);
+        if (random.nextDouble() < options.errorRate) {
+            errors.incrementAndGet();
+            throw new HttpError(500, "Verification failed: simulated error");
+        }
+    }
+
+    // Seeded by the image bytes and category, so the same upload always gets the same answer
+    private ObjectNode predict(byte[] image, String category) {
+        Random random = new Random(seed(image, category));
+        String reported = category.toUpperCase();
+        float[] probabilities = new float[labels.size()];
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = random.nextFloat() * 0.05f;
+        }
+
+        List<Integer> matching = labelsByCategory.get(reported);
+        int top;
+        if (matching != null && random.nextDouble() < options.verifyRate) {
+            top = matching.get(random.nextInt(matching.size()));
+        } else {
+            // No matching keyword anywhere in the top 5, or check_category_match would still find one;
+            // that includes other categories' labels such as "streetlight" for POTHOLE's "street"
+            List<Integer> accepted = labelsMatchingCategory.get(reported);
+            if (accepted != null) {
+                accepted.forEach(index -> probabilities[index] = 0f);
+            }
+            top = labels.size() - DISTRACTORS.size() + random.nextInt(DISTRACTORS.size());
+        }
+        probabilities[top] = 0.55f + random.nextFloat() * 0.4f;
+        return CivicCategoryMatcher.buildResult(probabilities, labels, category);
+    }
+
+    private static long seed(byte[] image, String category) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(image);
+            digest.update(category.toUpperCase().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Just enough multipart/form-data parsing for the two verify endpoints
+    private static List<Part> parseMultipart(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int boundaryAt = contentType != null ? contentType.indexOf("boundary=") : -1;
+        if (boundaryAt < 0) {
+            throw new HttpError(422, "Expected multipart/form-data");
+        }
+        String boundary = contentType.substring(boundaryAt + "boundary=".length()).replace("\"", "").split(";")[0];
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+
+        List<Part> parts = new ArrayList<>();
+        int start = indexOf(body, delimiter, 0);
+        while (start >= 0) {
+            int headersStart = start + delimiter.length + 2;
+            if (headersStart > body.length || body[start + delimiter.length] == '-') {
+                break;
+            }
+            int headersEnd = indexOf(body, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1), headersStart);
+            int next = indexOf(body, delimiter, headersEnd);
+            if (headersEnd < 0 || next < 0) {
+                break;
+            }
+            String headers = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.UTF_8);
+            byte[] content = Arrays.copyOfRange(body, headersEnd + 4, next - 2);
+            parts.add(new Part(headerParam(headers, "name"), content));
+            start = next;
+        }
+        return parts;
+    }
+
+    private static String headerParam(String headers, String param) {
+        for (String line : headers.split("\r\n")) {
+            if (!line.toLowerCase().startsWith("content-disposition:")) {
+                continue;
+            }
+            for (String attribute : line.split(";")) {
+                String[] pair = attribute.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].equals(param)) {
+                    return pair[1].replace("\"", "");
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle, int from) {
+        outer:
+        for (int i = Math.max(from, 0); i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static Part first(List<Part> parts, String name) {
+        List<Part> matching = all(parts, name);
+        return matching.isEmpty() ? null : matching.get(0);
+    }
+
+    private static List<Part> all(List<Part> parts, String name) {
+        List<Part> matching = new ArrayList<>();
+        for (Part part : parts) {
+            if (name.equals(part.name)) {
+                matching.add(part);
+            }
+        }
+        return matching;
+    }
+
+    private static String text(Part part) {
+        return new String(part.content, StandardCharsets.UTF_8).trim();
+    }
+}
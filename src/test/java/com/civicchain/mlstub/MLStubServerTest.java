@@ -0,0 +1,102 @@
+package com.civicchain.mlstub;
+
+import com.civicchain.service.CivicCategoryMatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sends a few hundred distinct images per category through a running stub and checks the share
+// the application would count as AI-verified against the configured verify rate
+class MLStubServerTest {
+
+    private static final int IMAGES_PER_CATEGORY = 300;
+    private static final String BOUNDARY = "----stub-test-boundary-7d0a3c9f51e2";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private MLStubServer stub;
+
+    @AfterEach
+    void stopStub() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    @Test
+    void observedVerifyRateFollowsTheOption() throws Exception {
+        startStub(0.3);
+        for (String category : CivicCategoryMatcher.CIVIC_CATEGORIES.keySet()) {
+            double rate = verifiedShare(category, new Random(category.hashCode()));
+            assertTrue(Math.abs(rate - 0.3) < 0.08, category + " verified " + rate + " of images at rate 0.3");
+        }
+    }
+
+    // Misses must stay misses even where another category's label contains one of the keywords
+    @Test
+    void zeroVerifyRateVerifiesNothing() throws Exception {
+        startStub(0);
+        for (String category : CivicCategoryMatcher.CIVIC_CATEGORIES.keySet()) {
+            assertEquals(0.0, verifiedShare(category, new Random(category.hashCode())), category);
+        }
+    }
+
+    private void startStub(double verifyRate) throws Exception {
+        MLStubServer.Options options = new MLStubServer.Options();
+        options.setPort(0);
+        options.setLatencyMs(0);
+        options.setLatencyP99Ms(0);
+        options.setPerImageMs(0);
+        options.setVerifyRate(verifyRate);
+        options.setThreads(4);
+        stub = new MLStubServer(options);
+        stub.start();
+    }
+
+    private double verifiedShare(String category, Random random) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < IMAGES_PER_CATEGORY; i++) {
+            byte[] image = new byte[1024];
+            random.nextBytes(image);
+            part(body, "name=\"image_files\"; filename=\"image" + i + ".jpg\"", image);
+            part(body, "name=\"categories\"", category.getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + stub.getPort() + "/verify_batch"))
+            .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+
+        JsonNode results = objectMapper.readTree(response.body()).get("results");
+        assertEquals(IMAGES_PER_CATEGORY, results.size());
+        int verified = 0;
+        for (JsonNode result : results) {
+            if (result.get("ai_verified").asBoolean()) {
+                verified++;
+            }
+        }
+        return (double) verified / IMAGES_PER_CATEGORY;
+    }
+
+    private static void part(ByteArrayOutputStream body, String disposition, byte[] content) {
+        body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; " + disposition + "\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,246 @@
+package com.civicchain.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Container durations from hand-built WebM, Ogg and MP4 files, and the mu-law encoder against the
+// JDK's own mu-law decoder
+class AudioTranscodeServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void webmDurationFromInfo() throws Exception {
+        byte[] info = element(0x1549A966L, concat(
+            element(0x2AD7B1L, new byte[] {0x0F, 0x42, 0x40}),
+            element(0x4489L, ByteBuffer.allocate(8).putDouble(4200.0).array())));
+        assertEquals(4200, duration("info.webm", webm(info)));
+    }
+
+    @Test
+    void webmDurationFromFloatInfoAndCustomTimecodeScale() throws Exception {
+        // 10 ms ticks, Duration written as a 4-byte float
+        byte[] info = element(0x1549A966L, concat(
+            element(0x2AD7B1L, new byte[] {(byte) 0x98, (byte) 0x96, (byte) 0x80}),
+            element(0x4489L, ByteBuffer.allocate(4).putFloat(302.0f).array())));
+        assertEquals(3020, duration("scale.webm", webm(info)));
+    }
+
+    // MediaRecorder output: no Duration, unknown-size Clusters of Opus SimpleBlocks
+    @Test
+    void webmDurationFromLastOpusBlock() throws Exception {
+        ByteArrayOutputStream clusters = new ByteArrayOutputStream();
+        clusters.write(cluster(0, 0, 2980));
+        clusters.write(cluster(3000, 0, 480));
+        // 20 ms SILK frames (config 1, one frame per packet)
+        assertEquals(3500, duration("chrome.webm", webm(concat(opusTracks(), clusters.toByteArray()))));
+    }
+
+    @Test
+    void webmDurationIncludesEveryFrameOfTheLastPacket() throws Exception {
+        // Last packet: code 3, three 60 ms frames
+        byte[] last = simpleBlock(120, new byte[] {(byte) ((3 << 3) | 3), 3});
+        byte[] cluster = concat(cluster(0, 0, 100), last);
+        assertEquals(300, duration("frames.webm", webm(concat(opusTracks(), cluster))));
+    }
+
+    @Test
+    void webmWithoutDurationOrClustersHasNone() throws Exception {
+        assertNull(duration("empty.webm", webm(opusTracks())));
+    }
+
+    @Test
+    void oggOpusDurationLessPreSkip() throws Exception {
+        byte[] head = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN)
+            .put("OpusHead".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 1)
+            .putShort((short) 312).putInt(48000).putShort((short) 0).put((byte) 0).array();
+        byte[] file = concat(oggPage(0, head), oggPage(0, noise(4000)), oggPage(312 + 48000 * 5 / 2, noise(200)));
+        assertEquals(2500, duration("voice.opus", file));
+    }
+
+    @Test
+    void oggVorbisDurationAtStreamRate() throws Exception {
+        byte[] head = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN)
+            .put((byte) 1).put("vorbis".getBytes(StandardCharsets.US_ASCII)).putInt(0).put((byte) 1)
+            .putInt(44100).array();
+        byte[] file = concat(oggPage(0, head), oggPage(44100 * 3, noise(100)));
+        assertEquals(3000, duration("voice.ogg", file));
+    }
+
+    @Test
+    void oggOfAnotherCodecHasNone() throws Exception {
+        byte[] head = "FLAC-ish".getBytes(StandardCharsets.US_ASCII);
+        assertNull(duration("other.ogg", concat(oggPage(0, head), oggPage(48000, noise(10)))));
+    }
+
+    @Test
+    void mp4DurationWithMoovAfterMdat() throws Exception {
+        byte[] mvhd = box("mvhd", ByteBuffer.allocate(100).putInt(0).putInt(0).putInt(0).putInt(44100)
+            .putInt(44100 * 29 / 4).array());
+        byte[] file = concat(ftyp(), box("mdat", noise(5000)), box("moov", mvhd));
+        assertEquals(7250, duration("voice.m4a", file));
+    }
+
+    @Test
+    void mp4DurationFromVersion1Header() throws Exception {
+        byte[] mvhd = box("mvhd", ByteBuffer.allocate(112).putInt(1 << 24).putLong(0).putLong(0).putInt(1000)
+            .putLong(600_000).array());
+        byte[] file = concat(ftyp(), box("moov", concat(box("free", new byte[16]), mvhd)), box("mdat", noise(100)));
+        assertEquals(600_000, duration("long.m4a", file));
+    }
+
+    @Test
+    void mp4WithoutMoovHasNone() throws Exception {
+        assertNull(duration("partial.m4a", concat(ftyp(), box("mdat", noise(100)))));
+    }
+
+    @Test
+    void unknownContainerHasNone() throws Exception {
+        assertNull(duration("noise.bin", noise(256)));
+    }
+
+    @Test
+    void ulawMatchesKnownCodes() {
+        assertEquals((byte) 0xFF, AudioTranscodeService.linearToUlaw(0));
+        assertEquals((byte) 0x7F, AudioTranscodeService.linearToUlaw(-1));
+        assertEquals((byte) 0x80, AudioTranscodeService.linearToUlaw(32767));
+        assertEquals((byte) 0x00, AudioTranscodeService.linearToUlaw(-32768));
+    }
+
+    @Test
+    void ulawRoundTripsThroughTheJdkDecoder() throws Exception {
+        byte[] encoded = new byte[65536];
+        for (int sample = -32768; sample <= 32767; sample++) {
+            encoded[sample + 32768] = AudioTranscodeService.linearToUlaw(sample);
+        }
+        AudioFormat ulaw = new AudioFormat(AudioFormat.Encoding.ULAW, 8000, 8, 1, 1, 8000, false);
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 16, 1, 2, 8000, false);
+        byte[] decoded;
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(pcm,
+                new AudioInputStream(new ByteArrayInputStream(encoded), ulaw, encoded.length))) {
+            decoded = in.readAllBytes();
+        }
+        ByteBuffer samples = ByteBuffer.wrap(decoded).order(ByteOrder.LITTLE_ENDIAN);
+
+        int previous = Integer.MIN_VALUE;
+        for (int sample = -32768; sample <= 32767; sample++) {
+            int value = samples.getShort();
+            // Never out of order, and never further off than half of the widest segment's step
+            assertTrue(value >= previous, "not monotonic at " + sample);
+            int clipped = Math.max(-32635, Math.min(32635, sample));
+            assertTrue(Math.abs(value - clipped) <= Math.max(8, Math.abs(clipped) / 16),
+                "sample " + sample + " decoded to " + value);
+            previous = value;
+        }
+    }
+
+    private Integer duration(String name, byte[] content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, content);
+        return AudioTranscodeService.containerDurationMs(file);
+    }
+
+    // EBML header for the webm doctype, then a streamed (unknown-size) Segment
+    private static byte[] webm(byte[] segment) {
+        byte[] header = element(0x1A45DFA3L, element(0x4282L, "webm".getBytes(StandardCharsets.US_ASCII)));
+        byte[] segmentHeader = {0x18, 0x53, (byte) 0x80, 0x67, 0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        return concat(header, segmentHeader, segment);
+    }
+
+    private static byte[] opusTracks() {
+        byte[] entry = element(0xAEL, concat(
+            element(0xD7L, new byte[] {1}),
+            element(0x86L, "A_OPUS".getBytes(StandardCharsets.US_ASCII))));
+        return element(0x1654AE6BL, entry);
+    }
+
+    // Unknown-size Cluster with one 20 ms Opus packet every 20 ms from first to last (relative timecodes)
+    private static byte[] cluster(int timecode, int first, int last) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[] {0x1F, 0x43, (byte) 0xB6, 0x75, 0x01, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        out.writeBytes(element(0xE7L, ByteBuffer.allocate(2).putShort((short) timecode).array()));
+        for (int t = first; t <= last; t += 20) {
+            out.writeBytes(simpleBlock(t, concat(new byte[] {1 << 3}, noise(40))));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] simpleBlock(int timecode, byte[] packet) {
+        byte[] block = ByteBuffer.allocate(4 + packet.length).put((byte) 0x81).putShort((short) timecode)
+            .put((byte) 0x80).put(packet).array();
+        return element(0xA3L, block);
+    }
+
+    // ID as written (marker included), then an 8-byte size
+    private static byte[] element(long id, byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int idLength = (64 - Long.numberOfLeadingZeros(id) + 7) / 8;
+        for (int i = idLength - 1; i >= 0; i--) {
+            out.write((int) (id >> (8 * i)));
+        }
+        out.writeBytes(ByteBuffer.allocate(8).putLong(content.length | 0x0100_0000_0000_0000L).array());
+        out.writeBytes(content);
+        return out.toByteArray();
+    }
+
+    // Single-packet page; the CRC is left zero since the parser never checks it
+    private static byte[] oggPage(long granule, byte[] packet) {
+        int segments = packet.length / 255 + 1;
+        ByteBuffer page = ByteBuffer.allocate(27 + segments + packet.length).order(ByteOrder.LITTLE_ENDIAN);
+        page.put("OggS".getBytes(StandardCharsets.US_ASCII)).put((byte) 0).put((byte) 0).putLong(granule)
+            .putInt(1).putInt(0).putInt(0).put((byte) segments);
+        for (int i = 0; i < segments - 1; i++) {
+            page.put((byte) 255);
+        }
+        page.put((byte) (packet.length % 255));
+        return page.put(packet).array();
+    }
+
+    private static byte[] ftyp() {
+        return box("ftyp", "M4A \0\0\0\0isomM4A ".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] box(String type, byte[] content) {
+        return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length)
+            .put(type.getBytes(StandardCharsets.US_ASCII)).put(content).array();
+    }
+
+    // Random payload without any container signature the parsers scan for
+    private static byte[] noise(int length) {
+        byte[] data = new byte[length];
+        ThreadLocalRandom.current().nextBytes(data);
+        for (int i = 0; i < length; i++) {
+            if (data[i] == 'O' || (data[i] & 0xFF) == 0x1F) {
+                data[i] = 0x55;
+            }
+        }
+        return data;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.StoredUpload;
+import com.civicchain.model.Report;
+import com.civicchain.repository.ReportRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Deletes a report while the audio transcoder is swapping its recording; whichever commits first,
+// the old and the new file must each be released exactly once
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:report-concurrency;DB_CLOSE_DELAY=-1",
+    "civicchain.ml.jobs.poll-interval-ms=3600000",
+    "logging.level.org.hibernate.SQL=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+    "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+    "logging.level.com.civicchain=INFO"
+})
+class ReportServiceConcurrencyTest {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private UploadStorageService uploadStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deleteDuringAudioReplaceReleasesEachFileOnce() throws Exception {
+        String oldPath = attach("voice.webm");
+        String newPath = attach("voice.wav");
+        Report report = new Report("audio race", "concurrency test", Report.Category.POTHOLE);
+        report.setAudioPath(oldPath);
+        Long reportId = reportRepository.save(report).getId();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        CountDownLatch replaced = new CountDownLatch(1);
+        try {
+            // The transcoder's swap, held open so the delete starts while it is uncommitted
+            Future<Integer> swap = pool.submit(() -> {
+                int updated = transactionTemplate.execute(status -> {
+                    int rows = reportRepository.replaceAudio(reportId, oldPath, newPath, 1000);
+                    replaced.countDown();
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return rows;
+                });
+                transactionTemplate.execute(status -> uploadStorage.release(updated > 0 ? oldPath : newPath));
+                return updated;
+            });
+            assertTrue(replaced.await(1, TimeUnit.MINUTES));
+            reportService.deleteReport(reportId);
+
+            assertEquals(1, swap.get(1, TimeUnit.MINUTES));
+            assertFalse(reportRepository.existsById(reportId));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stored_files WHERE path IN (?, ?)",
+                Integer.class, oldPath, newPath));
+            assertFalse(Files.exists(Paths.get("uploads", oldPath)));
+            assertFalse(Files.exists(Paths.get("uploads", newPath)));
+        } finally {
+            pool.shutdownNow();
+            Files.deleteIfExists(Paths.get("uploads", oldPath));
+            Files.deleteIfExists(Paths.get("uploads", newPath));
+        }
+    }
+
+    private String attach(String name) throws Exception {
+        byte[] content = new byte[2048];
+        ThreadLocalRandom.current().nextBytes(content);
+        StoredUpload upload = uploadStorage.store(new ByteArrayInputStream(content), name, "audio");
+        return transactionTemplate.execute(status -> uploadStorage.attach(upload));
+    }
+}
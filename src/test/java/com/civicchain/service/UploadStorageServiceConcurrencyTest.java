@@ -0,0 +1,148 @@
+package com.civicchain.service;
+
+import com.civicchain.dto.StoredUpload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Attaches the same content from two transactions at once, as a double-clicked submit does; exactly
+// one of them must own the file and neither may fail on the unique path. Also races the staging
+// sweep against a release that rolls back
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:upload-concurrency;DB_CLOSE_DELAY=-1",
+    "civicchain.ml.jobs.poll-interval-ms=3600000",
+    "logging.level.org.hibernate.SQL=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+    "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+    "logging.level.com.civicchain=INFO"
+})
+class UploadStorageServiceConcurrencyTest {
+
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private UploadStorageService uploadStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parallelAttachesOfOnePathShareOneFile() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] content = new byte[4096];
+            ThreadLocalRandom.current().nextBytes(content);
+            StoredUpload first = uploadStorage.store(new ByteArrayInputStream(content), "photo.bin", "images");
+            StoredUpload second = uploadStorage.store(new ByteArrayInputStream(content), "photo.bin", "images");
+            assertEquals(first.getPath(), second.getPath());
+            Path file = Paths.get("uploads", first.getPath());
+
+            try {
+                List<String> paths = runConcurrently(List.of(() -> attachAndHold(first), () -> attachAndHold(second)));
+                assertEquals(List.of(first.getPath(), first.getPath()), paths);
+                assertEquals(2, refCount(first.getPath()));
+                assertArrayEquals(content, Files.readAllBytes(file));
+                assertFalse(Files.exists(Paths.get("uploads", first.getStagingPath())));
+                assertFalse(Files.exists(Paths.get("uploads", second.getStagingPath())));
+
+                assertEquals(false, transactionTemplate.execute(status -> uploadStorage.release(first.getPath())));
+                assertEquals(true, transactionTemplate.execute(status -> uploadStorage.release(first.getPath())));
+                assertFalse(Files.exists(file));
+                assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stored_files WHERE path = ?",
+                    Integer.class, first.getPath()));
+            } finally {
+                uploadStorage.delete(first);
+                uploadStorage.delete(second);
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // A file set aside by an uncommitted release must survive a staging sweep, so a rollback can put it back
+    @Test
+    void sweepDuringReleaseKeepsTheFileForRollback() throws Exception {
+        byte[] content = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(content);
+        StoredUpload upload = uploadStorage.store(new ByteArrayInputStream(content), "photo.bin", "images");
+        Path file = Paths.get("uploads", upload.getPath());
+        try {
+            transactionTemplate.execute(status -> uploadStorage.attach(upload));
+            // Stored long before the sweep's cutoff
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60 * 1000L));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                assertTrue(uploadStorage.release(upload.getPath()));
+                uploadStorage.sweepStaging();
+                status.setRollbackOnly();
+            });
+
+            assertArrayEquals(content, Files.readAllBytes(file));
+            assertEquals(1, refCount(upload.getPath()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Keeps the transaction open a little after attaching, like the rest of createReport does
+    private String attachAndHold(StoredUpload upload) {
+        return transactionTemplate.execute(status -> {
+            String path = uploadStorage.attach(upload);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return path;
+        });
+    }
+
+    private List<String> runConcurrently(List<Callable<String>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Callable<String> task : tasks) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<String> values = new ArrayList<>();
+            for (Future<String> result : results) {
+                values.add(result.get(1, TimeUnit.MINUTES));
+            }
+            return values;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int refCount(String path) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM stored_files WHERE path = ?", Integer.class, path);
+    }
+}
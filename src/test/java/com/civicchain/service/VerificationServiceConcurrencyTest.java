@@ -0,0 +1,147 @@
+package com.civicchain.service;
+
+import com.civicchain.model.Report;
+import com.civicchain.model.User;
+import com.civicchain.model.Verification;
+import com.civicchain.repository.ReportRepository;
+import com.civicchain.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Fires votes at one report from many threads at once; the atomic counter UPDATEs and the unique
+// (user_id, report_id) constraint must neither lose votes nor let anyone vote twice
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:verification-concurrency;DB_CLOSE_DELAY=-1",
+    "civicchain.ml.jobs.poll-interval-ms=3600000",
+    "logging.level.org.hibernate.SQL=WARN",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+    "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+    "logging.level.com.civicchain=INFO"
+})
+class VerificationServiceConcurrencyTest {
+
+    private static final int VOTERS = 2000;
+    private static final int THREADS = 32;
+    private static final int REPEATS = 200;
+
+    @Autowired
+    private VerificationService verificationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parallelVotesFromDistinctUsersAreAllCounted() throws Exception {
+        Long reportId = newReport("distinct voters");
+        List<Long> voters = newUsers("voter", VOTERS);
+
+        List<Callable<Boolean>> votes = new ArrayList<>();
+        for (int i = 0; i < voters.size(); i++) {
+            Long userId = voters.get(i);
+            Verification.VoteType vote = i % 3 == 0 ? Verification.VoteType.DOWNVOTE : Verification.VoteType.UPVOTE;
+            votes.add(() -> {
+                verificationService.submitVerification(userId, reportId, vote, "concurrency test");
+                return true;
+            });
+        }
+        assertEquals(VOTERS, runConcurrently(votes));
+
+        int expectedDown = (VOTERS + 2) / 3;
+        Report report = reportRepository.findById(reportId).orElseThrow();
+        assertEquals(VOTERS - expectedDown, report.getUpvotes());
+        assertEquals(expectedDown, report.getDownvotes());
+        assertEquals(VOTERS, countVerifications(reportId));
+        assertEquals(0, countRepeatedVoters(reportId));
+    }
+
+    @Test
+    void repeatedParallelVotesFromOneUserCountOnce() throws Exception {
+        Long reportId = newReport("single voter");
+        Long userId = newUsers("repeat", 1).get(0);
+
+        List<Callable<Boolean>> votes = new ArrayList<>();
+        for (int i = 0; i < REPEATS; i++) {
+            Verification.VoteType vote = i % 2 == 0 ? Verification.VoteType.UPVOTE : Verification.VoteType.DOWNVOTE;
+            votes.add(() -> {
+                try {
+                    verificationService.submitVerification(userId, reportId, vote, "concurrency test");
+                    return true;
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().contains("already voted"), e.getMessage());
+                    return false;
+                }
+            });
+        }
+        assertEquals(1, runConcurrently(votes));
+
+        Report report = reportRepository.findById(reportId).orElseThrow();
+        assertEquals(1, report.getUpvotes() + report.getDownvotes());
+        assertEquals(1, countVerifications(reportId));
+    }
+
+    // Starts every task at the same moment and returns how many succeeded
+    private int runConcurrently(List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(2, TimeUnit.MINUTES)) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Long newReport(String title) {
+        return reportRepository.save(new Report(title, "concurrency test", Report.Category.POTHOLE)).getId();
+    }
+
+    private List<Long> newUsers(String prefix, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User(prefix + i, prefix + i + "@test.local", "secret"));
+        }
+        return userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+
+    private int countVerifications(Long reportId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM verifications WHERE report_id = ?", Integer.class, reportId);
+    }
+
+    private int countRepeatedVoters(Long reportId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT user_id FROM verifications WHERE report_id = ? " +
+            "GROUP BY user_id HAVING COUNT(*) > 1) repeated", Integer.class, reportId);
+    }
+}